@@ -0,0 +1,13 @@
+package ch.trick17.gitlabtools.auth;
+
+/**
+ * Provides token creation with a {@link TokenCreator} to the core module.
+ */
+public class WebLoginTokenCreator implements AccessTokenCreator {
+
+    @Override
+    public String createAccessToken(String gitLabUrl, String username, String password, String tokenName)
+            throws TokenCreationException, AuthenticationException {
+        return new TokenCreator(gitLabUrl).createAccessToken(username, password, tokenName);
+    }
+}
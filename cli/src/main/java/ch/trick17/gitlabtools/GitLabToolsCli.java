@@ -7,6 +7,7 @@ import java.lang.management.ManagementFactory;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 import static java.lang.String.join;
 import static java.util.Arrays.copyOfRange;
@@ -14,18 +15,37 @@ import static java.util.Map.entry;
 
 public class GitLabToolsCli {
 
+    /**
+     * The constructors are wrapped with {@link #lazy}, so that the command
+     * classes (and their dependencies) are only loaded when the command is
+     * actually used, which speeds up startup.
+     */
     private static final Map<String, Cmd.Constructor> COMMANDS = Map.ofEntries(
-            entry("create-projects", CreateProjectsCmd::new),
-            entry("create-branch", CreateBranchCmd::new),
-            entry("protect-branch", ProtectBranchCmd::new),
-            entry("assign-members", AssignMembersCmd::new),
-            entry("publish-file", PublishFileCmd::new),
-            entry("publish-dir", PublishDirectoryCmd::new),
-            entry("create-merge-request", CreateMergeRequestCmd::new),
-            entry("extract-from-merge-requests", ExtractFromMergeRequestsCmd::new),
-            entry("checkout", CheckoutCmd::new),
-            entry("checkout-with-deadline", CheckoutWithDeadlineCmd::new),
-            entry("export-sources", ExportSourcesCmd::new));
+            entry("create-projects", lazy(() -> CreateProjectsCmd::new)),
+            entry("create-branch", lazy(() -> CreateBranchCmd::new)),
+            entry("protect-branch", lazy(() -> ProtectBranchCmd::new)),
+            entry("assign-members", lazy(() -> AssignMembersCmd::new)),
+            entry("publish-file", lazy(() -> PublishFileCmd::new)),
+            entry("publish-dir", lazy(() -> PublishDirectoryCmd::new)),
+            entry("create-merge-request", lazy(() -> CreateMergeRequestCmd::new)),
+            entry("extract-from-merge-requests", lazy(() -> ExtractFromMergeRequestsCmd::new)),
+            entry("checkout", lazy(() -> CheckoutCmd::new)),
+            entry("checkout-with-deadline", lazy(() -> CheckoutWithDeadlineCmd::new)),
+            entry("export-sources", lazy(() -> ExportSourcesCmd::new)),
+            entry("merge-results", lazy(() -> MergeResultsCmd::new)),
+            entry("pipeline", lazy(() -> PipelineCmd.constructor(GitLabToolsCli.COMMANDS))),
+            entry("serve", lazy(() -> ServeCmd.constructor(GitLabToolsCli.COMMANDS))));
+
+    /**
+     * Returns a constructor that delegates to the one returned by the given
+     * supplier. A constructor reference like <code>CheckoutCmd::new</code>
+     * loads its class as soon as it is evaluated (and a lambda that returns a
+     * new command, when the enclosing class is verified), but one within a
+     * supplier is evaluated only when the supplier is called.
+     */
+    private static Cmd.Constructor lazy(Supplier<Cmd.Constructor> constructor) {
+        return args -> constructor.get().construct(args);
+    }
 
     public static void main(String[] args) throws Exception {
         System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
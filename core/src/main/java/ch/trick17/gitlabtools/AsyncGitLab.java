@@ -0,0 +1,417 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.JsonListSubscriber.Decoder;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.gitlab4j.api.GitLabApiException;
+import org.gitlab4j.api.models.MergeRequest;
+import org.gitlab4j.api.models.MergeRequestFilter;
+import org.gitlab4j.api.utils.ISO8601;
+import org.gitlab4j.api.utils.JacksonJson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static java.net.http.HttpClient.Redirect.NORMAL;
+import static java.net.http.HttpClient.Version.HTTP_2;
+import static java.net.http.HttpResponse.BodyHandlers.ofByteArray;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.stream.Collectors.joining;
+import static org.gitlab4j.api.Constants.ActionType.PUSHED;
+import static org.gitlab4j.api.Constants.SortOrder.DESC;
+
+/**
+ * A non-blocking client for the GitLab API endpoints that commands call for
+ * every project and that return potentially long lists: events, merge
+ * requests, discussions and members. Unlike with the blocking
+ * {@link org.gitlab4j.api.GitLabApi}, requests do not occupy a thread while
+ * they are in flight, and with HTTP/2 (if the server supports it), they share
+ * a single connection. Most results are the same gitlab4j models, so they can
+ * be used like the ones of the blocking API.
+ * <p>
+ * Lists are fetched completely: after the first page, the remaining pages
+ * are requested all at once. The exceptions are the potentially huge lists
+ * of events, discussions and members: they are decoded while they are being
+ * received, directly into small records with only the fields that commands
+ * use ({@link PushEventInfo}, {@link NoteInfo}, {@link UserInfo}), and
+ * events and notes are passed to the caller one by one.
+ * <p>
+ * At most <code>maxConcurrentRequests</code> requests are in flight at any
+ * time; further requests are queued (without blocking the caller). Failed
+ * requests are retried with the given {@link RetryPolicy}, so they also
+ * count for its circuit breaker.
+ */
+public class AsyncGitLab {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HTTP_2)
+            .followRedirects(NORMAL)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final ObjectMapper mapper = new JacksonJson().getObjectMapper();
+
+    private final String apiUrl;
+    private final String token;
+    private final int perPage;
+    private final RetryPolicy retry;
+    private final int maxConcurrentRequests;
+
+    // guarded by 'this'
+    private int inFlight = 0;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+    public AsyncGitLab(String url, String token, int perPage, RetryPolicy retry, int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.apiUrl = url.replaceAll("/$", "") + "/api/v4/";
+        this.token = token;
+        this.perPage = perPage;
+        this.retry = retry;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Passes the push events of the given project to the given consumer,
+     * newest first, while they are being received. Like in the API,
+     * <code>before</code> and <code>after</code> (both optional) only
+     * consider the date, not the time. If the consumer returns
+     * <code>false</code>, no further events are fetched.
+     */
+    public CompletableFuture<Void> forEachPushEvent(long projectId, Date before, Date after,
+                                                    Predicate<? super PushEventInfo> consumer) {
+        var params = new LinkedHashMap<String, String>();
+        params.put("action", PUSHED.toValue());
+        if (before != null) {
+            params.put("before", ISO8601.dateOnly(before));
+        }
+        if (after != null) {
+            params.put("after", ISO8601.dateOnly(after));
+        }
+        params.put("sort", DESC.toValue());
+        return stream("projects/" + projectId + "/events", params, 1, PushEventInfo::decode, consumer);
+    }
+
+    public CompletableFuture<List<MergeRequest>> getMergeRequests(long projectId, MergeRequestFilter filter) {
+        var params = new LinkedHashMap<String, String>();
+        filter.getQueryParams().asMap().forEach((name, values) -> params.put(name, String.join(",", values)));
+        return getList("projects/" + projectId + "/merge_requests", params, MergeRequest.class);
+    }
+
+    /**
+     * Passes the notes of all discussions of the given merge request to the
+     * given consumer, while they are being received.
+     */
+    public CompletableFuture<Void> forEachMergeRequestNote(long projectId, long mergeRequestIid,
+                                                           Consumer<? super NoteInfo> consumer) {
+        var path = "projects/" + projectId + "/merge_requests/" + mergeRequestIid + "/discussions";
+        return stream(path, Map.of(), 1, AsyncGitLab::decodeNotes, notes -> {
+            notes.forEach(consumer);
+            return true;
+        });
+    }
+
+    public CompletableFuture<List<UserInfo>> getProjectMembers(long projectId) {
+        return collect("projects/" + projectId + "/members", UserInfo::decode);
+    }
+
+    public CompletableFuture<List<UserInfo>> getGroupMembers(String groupPath) {
+        return collect("groups/" + encode(groupPath) + "/members", UserInfo::decode);
+    }
+
+    private <T> CompletableFuture<List<T>> getList(String path, Map<String, String> params, Class<T> type) {
+        return getPage(path, params, 1, type).thenCompose(first -> {
+            var totalPages = first.response().headers().firstValue("X-Total-Pages")
+                    .map(Integer::parseInt).orElse(-1);
+            if (totalPages < 0) {
+                // GitLab omits the total for large lists; follow the links instead
+                return getRemaining(path, params, first, type);
+            }
+            var pages = new ArrayList<CompletableFuture<Page<T>>>();
+            pages.add(CompletableFuture.completedFuture(first));
+            for (int page = 2; page <= totalPages; page++) {
+                pages.add(getPage(path, params, page, type));
+            }
+            return allOf(pages.toArray(CompletableFuture[]::new)).thenApply(v -> {
+                var items = new ArrayList<T>();
+                pages.forEach(p -> items.addAll(p.join().items()));
+                return items;
+            });
+        });
+    }
+
+    private <T> CompletableFuture<List<T>> getRemaining(String path, Map<String, String> params,
+                                                        Page<T> previous, Class<T> type) {
+        var next = previous.response().headers().firstValue("X-Next-Page").orElse("");
+        if (next.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>(previous.items()));
+        }
+        return getPage(path, params, Integer.parseInt(next), type)
+                .thenCompose(page -> getRemaining(path, params, page, type))
+                .thenApply(rest -> {
+                    rest.addAll(0, previous.items());
+                    return rest;
+                });
+    }
+
+    private <T> CompletableFuture<Page<T>> getPage(String path, Map<String, String> params, int page,
+                                                   Class<T> type) {
+        var pageParams = new LinkedHashMap<>(params);
+        pageParams.put("page", String.valueOf(page));
+        pageParams.put("per_page", String.valueOf(perPage));
+        return get(path, pageParams).thenApply(response -> new Page<>(response,
+                readList(response, type)));
+    }
+
+    private <T> CompletableFuture<List<T>> collect(String path, Decoder<T> decoder) {
+        var items = new ArrayList<T>();
+        return stream(path, Map.of(), 1, decoder, items::add).thenApply(v -> items);
+    }
+
+    /**
+     * Decodes the elements of a list while they are being received and passes
+     * them to the consumer, starting at the given page. In contrast to
+     * {@link #getList}, the pages are requested one after the other, so the
+     * elements arrive in order and the consumer can stop early.
+     */
+    private <T> CompletableFuture<Void> stream(String path, Map<String, String> params, int page,
+                                               Decoder<T> decoder, Predicate<? super T> consumer) {
+        var pageParams = new LinkedHashMap<>(params);
+        pageParams.put("page", String.valueOf(page));
+        pageParams.put("per_page", String.valueOf(perPage));
+        var delivered = new AtomicInteger(); // shared by all attempts
+        var subscriber = new AtomicReference<JsonListSubscriber<T>>();
+        BodyHandler<byte[]> handler = info -> {
+            if (info.statusCode() >= 400) {
+                return BodySubscribers.ofByteArray(); // for the error message
+            }
+            subscriber.set(new JsonListSubscriber<>(decoder, consumer, delivered));
+            return BodySubscribers.mapping(subscriber.get(), v -> null);
+        };
+        return get(path, pageParams, handler).thenCompose(response -> {
+            var next = response.headers().firstValue("X-Next-Page").orElse("");
+            if (subscriber.get().stopped() || next.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return stream(path, params, Integer.parseInt(next), decoder, consumer);
+        });
+    }
+
+    /**
+     * Sends a GET request, retrying it if necessary. Error responses fail the
+     * returned future with a {@link GitLabApiException}.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> get(String path, Map<String, String> params) {
+        return get(path, params, ofByteArray());
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> get(String path, Map<String, String> params,
+                                                        BodyHandler<byte[]> handler) {
+        var query = params.entrySet().stream()
+                .map(e -> e.getKey() + "=" + URLEncoder.encode(e.getValue(), UTF_8))
+                .collect(joining("&"));
+        var request = HttpRequest.newBuilder(URI.create(apiUrl + path + (query.isEmpty() ? "" : "?" + query)))
+                .header("PRIVATE-TOKEN", token)
+                .header("Accept", "application/json")
+                .GET().build();
+        return retry.callAsync(path, () -> limited(() -> client.sendAsync(request, handler))
+                .thenApply(response -> {
+                    var status = response.statusCode();
+                    if (status >= 400) {
+                        throw new CompletionException(new GitLabApiException(errorMessage(response), status));
+                    }
+                    return response;
+                }));
+    }
+
+    /**
+     * Starts the given request as soon as fewer than the maximum number of
+     * requests are in flight.
+     */
+    private <T> CompletableFuture<T> limited(Supplier<CompletableFuture<T>> request) {
+        var result = new CompletableFuture<T>();
+        Runnable start = () -> request.get().whenComplete((value, e) -> {
+            release();
+            if (e == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+        synchronized (this) {
+            if (inFlight == maxConcurrentRequests) {
+                waiting.add(start);
+                return result;
+            }
+            inFlight++;
+        }
+        start.run();
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        if (next != null) {
+            next.run(); // takes over the slot
+        }
+    }
+
+    private String errorMessage(HttpResponse<byte[]> response) {
+        try {
+            var message = mapper.readTree(response.body()).path("message");
+            if (!message.isMissingNode()) {
+                return message.isTextual() ? message.asText() : message.toString();
+            }
+        } catch (IOException e) {
+            // not JSON, use status only
+        }
+        return "HTTP " + response.statusCode() + " for " + response.uri().getPath();
+    }
+
+    private <T> List<T> readList(HttpResponse<byte[]> response, Class<T> type) {
+        try {
+            return mapper.readValue(response.body(),
+                    mapper.getTypeFactory().constructCollectionType(List.class, type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String encode(String pathSegment) {
+        return URLEncoder.encode(pathSegment, UTF_8).replace("+", "%20");
+    }
+
+    private record Page<T>(HttpResponse<byte[]> response, List<T> items) {}
+
+    private static List<NoteInfo> decodeNotes(JsonParser parser) throws IOException {
+        var notes = new ArrayList<NoteInfo>();
+        while (parser.nextToken() == FIELD_NAME) {
+            var field = parser.currentName();
+            parser.nextToken();
+            if (field.equals("notes")) {
+                while (parser.nextToken() == START_OBJECT) {
+                    notes.add(NoteInfo.decode(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return notes;
+    }
+
+    /**
+     * The fields of a user (e.g., a member) that commands use.
+     */
+    public record UserInfo(long id, String username) {
+
+        static UserInfo decode(JsonParser parser) throws IOException {
+            long id = 0;
+            String username = null;
+            while (parser.nextToken() == FIELD_NAME) {
+                var field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = parser.getLongValue();
+                    case "username" -> username = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+            return new UserInfo(id, username);
+        }
+    }
+
+    /**
+     * The fields of a push event that commands use. <code>commitTo</code> is
+     * <code>null</code> if the push deleted the branch.
+     */
+    public record PushEventInfo(Instant createdAt, String authorUsername, String ref, String commitTo) {
+
+        static PushEventInfo decode(JsonParser parser) throws IOException {
+            Instant createdAt = null;
+            String author = null;
+            String ref = null;
+            String commitTo = null;
+            while (parser.nextToken() == FIELD_NAME) {
+                var field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "created_at" -> createdAt = OffsetDateTime.parse(parser.getText()).toInstant();
+                    case "author_username" -> author = parser.getValueAsString();
+                    case "push_data" -> {
+                        if (parser.currentToken() == START_OBJECT) { // may be null
+                            while (parser.nextToken() == FIELD_NAME) {
+                                var pushField = parser.currentName();
+                                parser.nextToken();
+                                switch (pushField) {
+                                    case "ref" -> ref = parser.getValueAsString();
+                                    case "commit_to" -> commitTo = parser.getValueAsString();
+                                    default -> parser.skipChildren();
+                                }
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            return new PushEventInfo(createdAt, author, ref, commitTo);
+        }
+    }
+
+    /**
+     * The fields of a note (a comment or a system note) that commands use.
+     */
+    public record NoteInfo(String author, String body, boolean system) {
+
+        static NoteInfo decode(JsonParser parser) throws IOException {
+            String author = null;
+            String body = null;
+            var system = false;
+            while (parser.nextToken() == FIELD_NAME) {
+                var field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "author" -> author = parser.currentToken() == START_OBJECT
+                            ? UserInfo.decode(parser).username()
+                            : null;
+                    case "body" -> body = parser.getValueAsString();
+                    case "system" -> system = parser.getValueAsBoolean();
+                    default -> parser.skipChildren();
+                }
+            }
+            return new NoteInfo(author, body, system);
+        }
+    }
+}
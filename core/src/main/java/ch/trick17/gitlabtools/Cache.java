@@ -0,0 +1,198 @@
+package ch.trick17.gitlabtools;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.gitlab4j.api.GitLabApiException;
+
+/**
+ * A thread-safe in-memory cache for values fetched from GitLab. Concurrent
+ * misses for the same key result in a single load (all callers wait for the
+ * same result). The cache can be bounded in size, in which case the least
+ * recently used entries are evicted, and entries can expire after a given
+ * time to live, which can be overridden for individual entries (see
+ * {@link #update(Key, Duration, ValSupplier)}). Hits, misses and load times
+ * are recorded in {@link #stats()}.
+ */
+public class Cache<V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    // access-ordered, for LRU eviction; guarded by 'this'
+    private final LinkedHashMap<Key, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an unbounded cache whose entries never expire.
+     */
+    public Cache() {
+        this(Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Creates a cache that holds at most <code>maxSize</code> entries and
+     * whose entries expire after the given time to live (or never, if
+     * <code>null</code>).
+     */
+    public Cache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    /**
+     * Like {@link #Cache(int, Duration)}, but with the given clock for
+     * expiry, for testing.
+     */
+    Cache(int maxSize, Duration ttl, LongSupplier nanoTime) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl == null ? Long.MAX_VALUE : ttl.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    public V update(Key key, ValSupplier<V> v) throws GitLabApiException {
+        return update(key, ttlNanos, v);
+    }
+
+    /**
+     * Like {@link #update(Key, ValSupplier)}, but if the value is loaded, it
+     * expires after the given time to live instead of the one of the cache
+     * (or never, if <code>null</code>). An entry that is already cached keeps
+     * its time to live.
+     */
+    public V update(Key key, Duration ttl, ValSupplier<V> v) throws GitLabApiException {
+        return update(key, ttl == null ? Long.MAX_VALUE : ttl.toNanos(), v);
+    }
+
+    private V update(Key key, long ttlNanos, ValSupplier<V> v) throws GitLabApiException {
+        CompletableFuture<V> future;
+        Entry<V> loading = null;
+        synchronized (this) {
+            var entry = entries.get(key);
+            if (entry != null && !entry.isExpired(nanoTime.getAsLong())) {
+                hits.increment();
+                future = entry.value;
+            } else {
+                misses.increment();
+                future = new CompletableFuture<>();
+                loading = new Entry<>(future, nanoTime.getAsLong(), ttlNanos);
+                entries.put(key, loading);
+                evict();
+            }
+        }
+
+        if (loading != null) {
+            var start = System.nanoTime();
+            try {
+                future.complete(v.get());
+            } catch (Throwable e) {
+                // do not cache failures; errors must also complete the
+                // future, otherwise all waiters for the key would hang
+                synchronized (this) {
+                    entries.remove(key, loading);
+                }
+                future.completeExceptionally(e);
+            } finally {
+                loadNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof GitLabApiException) {
+                throw (GitLabApiException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+
+    public synchronized void invalidate(Key key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    private void evict() {
+        var i = entries.values().iterator();
+        while (entries.size() > maxSize && i.hasNext()) {
+            i.next();
+            i.remove();
+            evictions.increment();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(),
+                Duration.ofNanos(loadNanos.sum()));
+    }
+
+    public interface ValSupplier<V> {
+        V get() throws GitLabApiException;
+    }
+
+    public record Stats(long hits, long misses, long evictions, Duration totalLoadTime) {}
+
+    private static class Entry<V> {
+        final CompletableFuture<V> value;
+        final long created;
+        final long ttlNanos;
+
+        Entry(CompletableFuture<V> value, long created, long ttlNanos) {
+            this.value = value;
+            this.created = created;
+            this.ttlNanos = ttlNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - created > ttlNanos;
+        }
+    }
+
+    public static class Key {
+        private final String url;
+        private final Object aux;
+
+        public Key(String url, Object aux) {
+            this.url = requireNonNull(url);
+            this.aux = aux;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 + url.hashCode();
+            result = 31 * result + ((aux == null) ? 0 : aux.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            var other = (Key) obj;
+            return url.equals(other.url) && Objects.equals(aux, other.aux);
+        }
+    }
+}
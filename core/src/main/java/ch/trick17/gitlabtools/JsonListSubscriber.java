@@ -0,0 +1,169 @@
+package ch.trick17.gitlabtools;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.END_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.NOT_AVAILABLE;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+
+/**
+ * Decodes a JSON array of objects while the response body is still being
+ * received, using Jackson's non-blocking parser. Only the tokens of the
+ * current element are buffered; as soon as it is complete, it is decoded
+ * into a (usually small) record and passed to the consumer. Elements are
+ * only requested from the network as fast as the consumer takes them.
+ * <p>
+ * If the consumer returns <code>false</code>, the rest of the body is
+ * discarded and the subscriber completes normally. To support retries of a
+ * partially received response, the first elements can be skipped; the
+ * counter of delivered elements is shared between attempts.
+ */
+class JsonListSubscriber<T> implements BodySubscriber<Void> {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final Decoder<T> decoder;
+    private final Predicate<? super T> consumer;
+    private final AtomicInteger delivered;
+    private final CompletableFuture<Void> body = new CompletableFuture<>();
+
+    private final JsonParser parser;
+    private Flow.Subscription subscription;
+    private int depth = 0;
+    private int index = 0;
+    private TokenBuffer element;
+    private boolean arrayEnded = false;
+    private boolean stopped = false;
+
+    JsonListSubscriber(Decoder<T> decoder, Predicate<? super T> consumer, AtomicInteger delivered) {
+        this.decoder = decoder;
+        this.consumer = consumer;
+        this.delivered = delivered;
+        try {
+            parser = factory.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new AssertionError(e); // no I/O involved
+        }
+    }
+
+    /**
+     * Returns whether the consumer asked to stop, so no further pages should
+     * be requested.
+     */
+    boolean stopped() {
+        return stopped;
+    }
+
+    public CompletionStage<Void> getBody() {
+        return body;
+    }
+
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    public void onNext(List<ByteBuffer> buffers) {
+        try {
+            for (var buffer : buffers) {
+                ((ByteBufferFeeder) parser.getNonBlockingInputFeeder()).feedInput(buffer);
+                parseAvailable();
+                if (stopped) {
+                    subscription.cancel();
+                    body.complete(null);
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            subscription.cancel();
+            body.completeExceptionally(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    public void onError(Throwable e) {
+        body.completeExceptionally(e);
+    }
+
+    public void onComplete() {
+        if (body.isDone()) {
+            return;
+        }
+        try {
+            parser.getNonBlockingInputFeeder().endOfInput();
+            parseAvailable();
+            if (!stopped && !arrayEnded) {
+                throw new JsonParseException(parser, "Incomplete JSON array");
+            }
+            body.complete(null);
+        } catch (IOException | RuntimeException e) {
+            body.completeExceptionally(e);
+        }
+    }
+
+    private void parseAvailable() throws IOException {
+        JsonToken token;
+        while (!stopped && (token = parser.nextToken()) != NOT_AVAILABLE && token != null) {
+            if (depth == 0 && token != START_ARRAY) {
+                throw new JsonParseException(parser, "Expected JSON array, got " + token);
+            }
+            if (depth == 1 && token == START_OBJECT) {
+                element = new TokenBuffer(parser);
+            }
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+            }
+            if (token == START_ARRAY || token == START_OBJECT) {
+                depth++;
+            } else if (token == END_ARRAY || token == END_OBJECT) {
+                depth--;
+                if (depth == 1 && element != null) {
+                    deliver();
+                } else if (depth == 0) {
+                    arrayEnded = true;
+                }
+            }
+        }
+    }
+
+    private void deliver() throws IOException {
+        T value;
+        try (var elementParser = element.asParser()) {
+            elementParser.nextToken();
+            value = decoder.decode(elementParser);
+        }
+        element = null;
+        if (index++ < delivered.get()) {
+            return; // already delivered in a previous attempt
+        }
+        delivered.incrementAndGet();
+        stopped = !consumer.test(value);
+    }
+
+    /**
+     * Decodes a JSON object into a value. When called, the parser is
+     * positioned at the start of the object; the decoder must consume the
+     * object up to its end.
+     */
+    interface Decoder<T> {
+        T decode(JsonParser parser) throws IOException;
+    }
+}
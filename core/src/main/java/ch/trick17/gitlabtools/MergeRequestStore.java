@@ -0,0 +1,113 @@
+package ch.trick17.gitlabtools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.gitlab4j.api.GitLabApi;
+import org.gitlab4j.api.GitLabApiException;
+import org.gitlab4j.api.models.MergeRequestFilter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.toList;
+import static org.gitlab4j.api.Constants.MergeRequestState.ALL;
+
+/**
+ * A local store of the merge requests of projects and their (non-system)
+ * notes. The store of a project is kept in a JSON file and refreshed
+ * incrementally: only merge requests that have been updated since the last
+ * sync (which includes merge requests with new notes) are fetched again.
+ * <p>
+ * Merge requests that have been deleted on the server are not removed from
+ * the store.
+ */
+public class MergeRequestStore {
+
+    private final GitLabApi gitlab;
+    private final Path dir;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public MergeRequestStore(GitLabApi gitlab, Path dir) {
+        this.gitlab = gitlab;
+        this.dir = dir;
+    }
+
+    /**
+     * Brings the stored merge requests of the given project up to date and
+     * returns them, ordered by IID.
+     */
+    public List<StoredMergeRequest> sync(long projectId) throws GitLabApiException, IOException {
+        var file = dir.resolve(projectId + ".json");
+        var snapshot = exists(file)
+                ? mapper.readValue(file.toFile(), Snapshot.class)
+                : new Snapshot(null, List.of());
+
+        // GitLab's filter is inclusive, so the most recently updated merge
+        // request is listed again; its notes are only fetched again if it
+        // has changed. Using the server's timestamps (instead of the local
+        // time) makes this robust against clock differences.
+        var filter = new MergeRequestFilter()
+                .withProjectId(projectId)
+                .withState(ALL)
+                .withUpdatedAfter(snapshot.syncedAt());
+        var updated = gitlab.getMergeRequestApi().getMergeRequests(filter);
+        if (updated.isEmpty()) {
+            return snapshot.mergeRequests();
+        }
+
+        var byIid = new TreeMap<Long, StoredMergeRequest>();
+        snapshot.mergeRequests().forEach(r -> byIid.put(r.iid(), r));
+        var syncedAt = snapshot.syncedAt();
+        var changed = false;
+        for (var req : updated) {
+            var stored = byIid.get(req.getIid());
+            if (stored != null && stored.updatedAt().equals(req.getUpdatedAt())) {
+                continue;
+            }
+            changed = true;
+            var notes = gitlab.getDiscussionsApi()
+                    .getMergeRequestDiscussions(projectId, req.getIid()).stream()
+                    .flatMap(d -> d.getNotes().stream())
+                    .filter(n -> !n.getSystem())
+                    .map(n -> new StoredNote(n.getAuthor() == null ? null : n.getAuthor().getUsername(),
+                            n.getBody()))
+                    .collect(toList());
+            byIid.put(req.getIid(), new StoredMergeRequest(req.getIid(), req.getTitle(),
+                    req.getState(), req.getCreatedAt(), req.getUpdatedAt(), notes));
+            if (syncedAt == null || req.getUpdatedAt().after(syncedAt)) {
+                syncedAt = req.getUpdatedAt();
+            }
+        }
+
+        if (!changed) {
+            return snapshot.mergeRequests();
+        }
+        var mergeRequests = new ArrayList<>(byIid.values());
+        write(file, new Snapshot(syncedAt, mergeRequests));
+        return mergeRequests;
+    }
+
+    private void write(Path file, Snapshot snapshot) throws IOException {
+        createDirectories(dir);
+        // write to temporary file first, so that an interrupted run does not
+        // leave a corrupt store behind
+        var temp = dir.resolve(file.getFileName() + ".tmp");
+        mapper.writeValue(temp.toFile(), snapshot);
+        move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    public record StoredMergeRequest(long iid, String title, String state, Date createdAt,
+                                     Date updatedAt, List<StoredNote> notes) {}
+
+    public record StoredNote(String author, String body) {}
+
+    private record Snapshot(Date syncedAt, List<StoredMergeRequest> mergeRequests) {}
+}
@@ -0,0 +1,118 @@
+package ch.trick17.gitlabtools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Matches a list of regular expressions against a text in a single pass. To
+ * this end, the patterns are combined into one alternation, in which each
+ * pattern is wrapped in its own capturing group. The capturing groups of a
+ * match are then attributed back to the pattern they come from.
+ * <p>
+ * Unlike when each pattern is matched on its own, matches of different
+ * patterns cannot overlap: the text is scanned from left to right, and the
+ * match that starts first is taken (if several patterns match at the same
+ * position, the one that comes first in the list). Scanning then continues
+ * after the end of that match, so matches of other patterns within it are
+ * not found, even if the pattern comes first in the list. For example, with
+ * the patterns <code>b+</code> and <code>ab</code>, only <code>ab</code> is
+ * found in "ab". Patterns that cannot be combined
+ * (e.g., because they contain backreferences or duplicate group names) are
+ * matched separately.
+ */
+public class MultiPatternMatcher {
+
+    private static final Pattern BACKREFERENCE = Pattern.compile("\\\\(\\d|k<)");
+
+    private final List<Pattern> separate = new ArrayList<>();
+    private final Pattern combined;
+    private final int[] groupOffsets;
+    private final int[] groupCounts;
+
+    public MultiPatternMatcher(List<String> patterns) throws PatternSyntaxException {
+        var combinable = new ArrayList<Pattern>();
+        for (var p : patterns) {
+            var pattern = Pattern.compile(p);
+            if (BACKREFERENCE.matcher(p).find()) {
+                separate.add(pattern);
+            } else {
+                combinable.add(pattern);
+            }
+        }
+
+        groupOffsets = new int[combinable.size()];
+        groupCounts = new int[combinable.size()];
+        var offset = 1;
+        for (int i = 0; i < combinable.size(); i++) {
+            groupOffsets[i] = offset;
+            groupCounts[i] = combinable.get(i).matcher("").groupCount();
+            offset += 1 + groupCounts[i];
+        }
+
+        Pattern combined;
+        try {
+            combined = combinable.isEmpty() ? null : Pattern.compile(combinable.stream()
+                    .map(p -> "(" + p.pattern() + ")")
+                    .collect(joining("|")));
+        } catch (PatternSyntaxException e) {
+            // e.g., duplicate group names; fall back to separate matching
+            separate.addAll(0, combinable);
+            combined = null;
+        }
+        this.combined = combined;
+    }
+
+    /**
+     * Returns all matches of all patterns in the given text, in the order of
+     * the patterns (except that patterns that are matched separately come
+     * last) and, for each pattern, in the order of occurrence. If a
+     * pattern contains capturing groups, the contents of the groups are
+     * returned; otherwise, the entire match is returned.
+     */
+    public List<String> extract(String text) {
+        var results = new ArrayList<String>();
+        if (combined != null) {
+            List<List<String>> perPattern = new ArrayList<>();
+            for (int i = 0; i < groupOffsets.length; i++) {
+                perPattern.add(new ArrayList<>());
+            }
+            var matcher = combined.matcher(text);
+            while (matcher.find()) {
+                var i = matchingPattern(matcher);
+                addGroups(matcher, groupOffsets[i], groupCounts[i], perPattern.get(i));
+            }
+            perPattern.forEach(results::addAll);
+        }
+        for (var pattern : separate) {
+            var matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                addGroups(matcher, 0, matcher.groupCount(), results);
+            }
+        }
+        return results;
+    }
+
+    private int matchingPattern(Matcher matcher) {
+        for (int i = 0; i < groupOffsets.length; i++) {
+            if (matcher.start(groupOffsets[i]) >= 0) {
+                return i;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    private static void addGroups(Matcher matcher, int offset, int count, List<String> results) {
+        if (count == 0) {
+            results.add(matcher.group(offset));
+        } else {
+            for (int g = offset + 1; g <= offset + count; g++) {
+                results.add(matcher.group(g));
+            }
+        }
+    }
+}
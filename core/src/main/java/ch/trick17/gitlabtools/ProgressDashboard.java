@@ -0,0 +1,211 @@
+package ch.trick17.gitlabtools;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * A {@link ProgressTracker} for interactive terminals, which shows a status
+ * area at the bottom of the output: a progress bar with rate and ETA, the
+ * number of steps per result type, and the items currently in progress.
+ * <p>
+ * The status area is redrawn in place (using ANSI escape codes) by a
+ * background thread at a fixed, low frequency, so worker threads only
+ * update counters. Messages are buffered and printed above the status area
+ * on the next redraw. The dashboard must be {@linkplain #close() closed}
+ * (or its summary printed) to stop the background thread.
+ */
+public class ProgressDashboard extends ProgressTracker {
+
+    private static final long REDRAW_MILLIS = 200;
+    private static final int BAR_WIDTH = 30;
+
+    private final PrintStream destination;
+    private final int total;
+    private final int width;
+    private final long start = System.nanoTime();
+
+    private final Set<String> inProgress = new LinkedHashSet<>(); // guarded by this
+    private final List<String> messages = new ArrayList<>(); // guarded by this
+    private boolean dirty = true; // guarded by this
+
+    private final ScheduledExecutorService renderer = newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "progress-dashboard");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int drawnLines = 0; // only accessed by the rendering thread, then by close()
+    private boolean closed = false; // guarded by this
+
+    /**
+     * Creates a dashboard for the given total number of steps (or 0, if
+     * unknown) and starts rendering it.
+     */
+    public ProgressDashboard(PrintStream destination, int total) {
+        super(destination, 50); // chars per line are irrelevant, since muted
+        this.destination = destination;
+        this.total = total;
+        this.width = terminalWidth();
+        mute(); // only count in superclass
+        renderer.scheduleAtFixedRate(this::render, 0, REDRAW_MILLIS, MILLISECONDS);
+    }
+
+    /**
+     * Returns whether the dashboard can be used on the standard output, i.e.,
+     * whether it is an interactive terminal that supports escape codes.
+     */
+    public static boolean isSupported() {
+        return System.console() != null && !"dumb".equals(System.getenv("TERM"));
+    }
+
+    private static int terminalWidth() {
+        try {
+            return Integer.parseInt(System.getenv("COLUMNS"));
+        } catch (NumberFormatException e) {
+            return 80;
+        }
+    }
+
+    @Override
+    public synchronized void advance(String resultType) {
+        super.advance(resultType);
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void interrupt() {
+        // messages are printed above the status area instead
+    }
+
+    @Override
+    public synchronized void message(String message) {
+        messages.add(message);
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void started(String item) {
+        inProgress.add(item);
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void finished(String item) {
+        inProgress.remove(item);
+        dirty = true;
+    }
+
+    @Override
+    public void printSummary() {
+        close();
+        super.printSummary();
+    }
+
+    /**
+     * Stops rendering, prints any remaining messages and removes the status
+     * area, so that the summary can be printed in its place.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        renderer.shutdown();
+        try {
+            renderer.awaitTermination(1, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        redraw(List.of());
+    }
+
+    private void render() {
+        List<String> status;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            status = statusLines();
+        }
+        redraw(status);
+    }
+
+    private void redraw(List<String> status) {
+        List<String> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(messages);
+            messages.clear();
+        }
+        var out = new StringBuilder();
+        if (drawnLines > 0) {
+            out.append("\033[").append(drawnLines).append('F'); // to start of status area
+        }
+        out.append("\033[J"); // erase it
+        for (var message : pending) {
+            out.append(message).append(System.lineSeparator());
+        }
+        for (var line : status) {
+            out.append(line).append(System.lineSeparator());
+        }
+        drawnLines = status.size();
+        destination.print(out);
+        destination.flush();
+    }
+
+    private List<String> statusLines() {
+        var counts = counts();
+        var done = counts.values().stream().mapToInt(Integer::intValue).sum();
+        var seconds = (System.nanoTime() - start) / 1e9;
+        var rate = seconds > 0 ? done / seconds : 0;
+
+        var lines = new ArrayList<String>();
+        var progress = new StringBuilder();
+        if (total > 0) {
+            var filled = Math.min(BAR_WIDTH, done * BAR_WIDTH / total);
+            progress.append('[').append("#".repeat(filled))
+                    .append(".".repeat(BAR_WIDTH - filled)).append("] ")
+                    .append(done).append('/').append(total)
+                    .append(String.format(" %3d%%", done * 100 / total));
+        } else {
+            progress.append(done).append(" done");
+        }
+        progress.append(String.format("  %.1f/s  elapsed %s", rate, format((long) seconds)));
+        if (total > 0 && rate > 0 && done < total) {
+            progress.append("  ETA ").append(format((long) ((total - done) / rate)));
+        }
+        lines.add(progress.toString());
+
+        var results = counts.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .map(e -> e.getValue() + " " + e.getKey())
+                .collect(joining(", "));
+        if (!results.isEmpty()) {
+            lines.add(results);
+        }
+        if (!inProgress.isEmpty()) {
+            lines.add("in progress (" + inProgress.size() + "): " + String.join(", ", inProgress));
+        }
+        // longer lines would wrap and break the cursor movement
+        lines.replaceAll(l -> l.length() < width ? l : l.substring(0, width - 4) + "...");
+        return lines;
+    }
+
+    private static String format(long seconds) {
+        return seconds >= 3600
+                ? String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60)
+                : String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,282 @@
+package ch.trick17.gitlabtools;
+
+import static java.util.stream.Collectors.joining;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tracks and prints the progress of a command. All methods are synchronized,
+ * so a tracker may be shared by multiple worker threads.
+ * <p>
+ * This tracker prints one character per step, which works on any output.
+ * For interactive terminals, see {@link ProgressDashboard}.
+ */
+public class ProgressTracker implements AutoCloseable {
+
+    private final PrintStream destination;
+    private final int charsPerLine;
+
+    private final Map<String, Character> progressChars = new HashMap<>();
+
+    private final Map<String, Integer> progress = new LinkedHashMap<>();
+    private final Map<String, Integer> info = new LinkedHashMap<>();
+    private final ThreadLocal<String> group = new ThreadLocal<>();
+    private final ThreadLocal<String> project = new ThreadLocal<>();
+    private final List<Step> steps = new ArrayList<>();
+    private final StringWriter history = new StringWriter();
+    private boolean interrupted = false;
+    private boolean lineStarted = false;
+    private boolean mute = false;
+
+    /**
+     * Creates a tracker with {@link System#in} as the destination and 50 chars per
+     * line.
+     */
+    public ProgressTracker() {
+        this(System.out, 50);
+    }
+
+    public ProgressTracker(PrintStream destination, int charsPerLine) {
+        if (charsPerLine <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.destination = destination;
+        this.charsPerLine = charsPerLine;
+        progress.put("successful", 0); // report successes first in summary
+    }
+
+    /**
+     * Advances the progress by one step. A default result type
+     * "<code>successful</code>" is used for this step.
+     */
+    public void advance() {
+        advance("successful");
+    }
+
+    /**
+     * Advances the progress by one step, using the given result type.
+     */
+    public synchronized void advance(String resultType) {
+        if (interrupted) {
+            if (!mute) {
+                destination.print(history);
+            }
+            var buffer = history.getBuffer();
+            lineStarted = buffer.length() > 0 && buffer.charAt(buffer.length() - 1) != '\n';
+            interrupted = false;
+        }
+
+        progress.merge(resultType, 1, Integer::sum);
+        if (project.get() != null) {
+            steps.add(new Step(group.get(), project.get(), resultType));
+        }
+        print(progressChars.getOrDefault(resultType, '.'));
+
+        int totalProgress = totalProgress();
+        if (totalProgress % charsPerLine == 0) {
+            println(" (" + totalProgress + ")");
+        }
+    }
+
+    /**
+     * Registers an additional information, which is not counted as a progress
+     * steps, but is reported in the summary in the end.
+     */
+    public synchronized void additionalInfo(String infoType) {
+        info.merge(infoType, 1, Integer::sum);
+    }
+
+    /**
+     * Interrupts this tracker, to allow for printing other messages to the
+     * destination. The next time {@link #advance()} is called, all previous
+     * progress output is printed again, to restore the visual indication of
+     * progress.
+     */
+    public synchronized void interrupt() {
+        interrupted = true;
+        if (!mute && lineStarted) {
+            destination.println();
+        }
+        lineStarted = false;
+    }
+
+    /**
+     * Prints the given message (e.g., an error) to the destination, without
+     * disturbing the progress output.
+     */
+    public synchronized void message(String message) {
+        interrupt();
+        destination.println(message);
+    }
+
+    /**
+     * Prints the given message, followed by the stack trace of the given
+     * exception.
+     */
+    public void message(String message, Throwable e) {
+        var trace = new StringWriter();
+        e.printStackTrace(new PrintWriter(trace));
+        message(message + System.lineSeparator() + trace.toString().stripTrailing());
+    }
+
+    /**
+     * Notifies this tracker that work on the given item (e.g., a project) has
+     * started. This tracker ignores it, but subclasses may display the items
+     * that are currently in progress.
+     */
+    public void started(String item) {}
+
+    /**
+     * Notifies this tracker that work on the given item has finished.
+     */
+    public void finished(String item) {}
+
+    /**
+     * Attributes the steps reported by the current thread from now on to the
+     * given project of the given group (or to none, if <code>null</code>).
+     * If steps of more than one group are reported, the summary includes a
+     * line per group.
+     */
+    public void setProject(String group, String project) {
+        this.group.set(group);
+        this.project.set(project);
+    }
+
+    /**
+     * Turns this tracker's progress reporting off. Progress is still tracked and
+     * can be output using {@link #printSummary()}.
+     */
+    public synchronized void mute() {
+        mute  = true;
+    }
+
+    /**
+     * Prints a summary line to the destination, followed by a line per group,
+     * if steps of more than one group were reported.
+     */
+    public synchronized void printSummary() {
+        if (!mute && lineStarted) {
+            destination.println();
+        }
+        destination.println(summary());
+        var groupProgress = new TreeMap<String, Map<String, Integer>>();
+        for (var step : steps) {
+            if (step.group() != null) {
+                groupProgress.computeIfAbsent(step.group(), g -> new HashMap<>())
+                        .merge(step.result(), 1, Integer::sum);
+            }
+        }
+        if (groupProgress.size() > 1) {
+            groupProgress.forEach((group, counts) ->
+                    destination.println("  " + group + ": " + format(counts) + "."));
+        }
+    }
+
+    /**
+     * Returns the summary line, e.g., "Done. 10 successful, 2 failed.".
+     */
+    public synchronized String summary() {
+        var summary = new StringBuilder("Done.");
+        if (totalProgress() > 0) {
+            summary.append(" ").append(format(progress));
+            if (!info.isEmpty()) {
+                summary.append(info.entrySet().stream()
+                        .map(e -> e.getValue() + " " + e.getKey())
+                        .collect(joining(", ", " (", ")")));
+            }
+            summary.append(".");
+        }
+        return summary.toString();
+    }
+
+    private String format(Map<String, Integer> counts) {
+        // order of result types as in overall progress
+        return progress.keySet().stream()
+                .filter(type -> counts.getOrDefault(type, 0) > 0)
+                .map(type -> counts.get(type) + " " + type)
+                .collect(joining(", "));
+    }
+
+    /**
+     * Returns a snapshot of everything this tracker has counted, e.g., to
+     * combine it with the results of other runs using {@link #add}.
+     */
+    public synchronized Results results() {
+        return new Results(new LinkedHashMap<>(progress), new LinkedHashMap<>(info),
+                new ArrayList<>(steps));
+    }
+
+    /**
+     * Adds the given results (e.g., of another run) to the ones of this
+     * tracker, without printing any progress.
+     */
+    public synchronized void add(Results results) {
+        results.counts().forEach((type, count) -> progress.merge(type, count, Integer::sum));
+        results.info().forEach((type, count) -> info.merge(type, count, Integer::sum));
+        steps.addAll(results.steps());
+    }
+
+    /**
+     * Defines the character that is printed when a step of progress with the given
+     * result type happens. The default character is the dot: '<code>.</code>'
+     */
+    public synchronized ProgressTracker usingChar(String resultType, char c) {
+        progressChars.put(resultType, c);
+        progress.put(resultType, 0); // influences order in which results are summarized
+        return this;
+    }
+
+    /**
+     * Stops any background output of this tracker. This tracker has none,
+     * but subclasses may.
+     */
+    @Override
+    public void close() {}
+
+    /**
+     * Returns a snapshot of the number of steps per result type, in the
+     * order in which they are summarized.
+     */
+    protected synchronized Map<String, Integer> counts() {
+        return new LinkedHashMap<>(progress);
+    }
+
+    /**
+     * A step of progress that was reported for a project.
+     */
+    public record Step(String group, String project, String result) {}
+
+    /**
+     * The number of steps per result type, the additional infos, and the
+     * steps that were reported for projects.
+     */
+    public record Results(Map<String, Integer> counts, Map<String, Integer> info, List<Step> steps) {}
+
+    private void println(String s) {
+        if (!mute) {
+            destination.println(s);
+        }
+        history.append(s).append("\n");
+        lineStarted = false;
+    }
+
+    private void print(char c) {
+        if (!mute) {
+            destination.print(c);
+        }
+        history.append(c);
+        lineStarted = true;
+    }
+
+    private int totalProgress() {
+        return progress.values().stream().reduce(Integer::sum).get();
+    }
+}
@@ -0,0 +1,150 @@
+package ch.trick17.gitlabtools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.gitlab4j.api.GitLabApi;
+import org.gitlab4j.api.GitLabApiException;
+import org.gitlab4j.api.models.GroupProjectsFilter;
+import org.gitlab4j.api.models.Project;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Comparator.naturalOrder;
+import static org.gitlab4j.api.Constants.ProjectOrderBy.LAST_ACTIVITY_AT;
+import static org.gitlab4j.api.Constants.SortOrder.DESC;
+
+/**
+ * A local snapshot of the projects of groups, so that commands do not need
+ * to fetch the whole list of projects on every run. The snapshot of a group
+ * is kept in a JSON file and refreshed incrementally: the projects are
+ * requested in the order of their last activity, and only those with
+ * activity since the last sync (which includes new projects) are fetched.
+ * Usually, they all fit on the first page, so a refresh takes one request.
+ * <p>
+ * The total number of projects, which GitLab returns with the first page,
+ * serves as a check: if it does not match the size of the refreshed
+ * snapshot (e.g., because projects were deleted or moved), the snapshot is
+ * rebuilt from scratch. The check cannot notice everything: a project that
+ * is moved into the group keeps its old activity date and is therefore not
+ * fetched, so if another project is deleted at the same time, the count
+ * still matches. Changes that do not count as activity (e.g., renaming a
+ * project) are not noticed either. For this reason, a snapshot is also
+ * rebuilt when its last rebuild is older than a day; deleting the snapshot
+ * files forces an immediate rebuild.
+ */
+public class ProjectRoster {
+
+    private static final Duration MAX_AGE = Duration.ofDays(1);
+
+    private final GitLabApi gitlab;
+    private final Path dir;
+    private final int perPage;
+    private final RetryPolicy retry;
+    private final Supplier<Instant> now;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public ProjectRoster(GitLabApi gitlab, Path dir, int perPage, RetryPolicy retry) {
+        this(gitlab, dir, perPage, retry, Instant::now);
+    }
+
+    ProjectRoster(GitLabApi gitlab, Path dir, int perPage, RetryPolicy retry, Supplier<Instant> now) {
+        this.gitlab = gitlab;
+        this.dir = dir;
+        this.perPage = perPage;
+        this.retry = retry;
+        this.now = now;
+    }
+
+    /**
+     * Brings the snapshot of the given group (restricted to projects matching
+     * the given search, if not <code>null</code>) up to date and returns the
+     * projects.
+     */
+    public List<RosterProject> sync(String group, String search) throws GitLabApiException, IOException {
+        var file = dir.resolve(URLEncoder.encode(search == null ? group : group + "?search=" + search, UTF_8)
+                + ".json");
+        var snapshot = exists(file)
+                ? mapper.readValue(file.toFile(), Snapshot.class)
+                : new Snapshot(null, null, List.of());
+
+        var filter = new GroupProjectsFilter()
+                .withSimple(true)
+                .withSearch(search)
+                .withOrderBy(LAST_ACTIVITY_AT)
+                .withSortOder(DESC);
+        var description = "projects of " + group;
+        var pager = retry.call(description, () -> gitlab.getGroupApi().getProjects(group, filter, perPage));
+
+        var byId = new LinkedHashMap<Long, RosterProject>();
+        snapshot.projects().forEach(p -> byId.put(p.id(), p));
+        var updated = false;
+        // GitLab's timestamps are used (instead of the local time), and the
+        // most recently active project is fetched again, to be robust against
+        // clock differences and activity at the same instant
+        pages: while (pager.hasNext()) {
+            for (var project : retry.call(description, pager::next)) {
+                if (snapshot.syncedAt() != null && project.getLastActivityAt().before(snapshot.syncedAt())) {
+                    break pages;
+                }
+                byId.put(project.getId(), RosterProject.of(project));
+                updated = true;
+            }
+        }
+
+        var projects = new ArrayList<>(byId.values());
+        var rebuiltAt = snapshot.syncedAt() == null ? Date.from(now.get()) : snapshot.rebuiltAt();
+        // GitLab omits the total for very large groups, in which case the
+        // snapshot cannot be checked and is rebuilt every time
+        if (snapshot.syncedAt() != null && (projects.size() != pager.getTotalItems()
+                || rebuiltAt == null || rebuiltAt.toInstant().plus(MAX_AGE).isBefore(now.get()))) {
+            rebuiltAt = Date.from(now.get());
+            projects = new ArrayList<>();
+            for (var project : retry.call(description, () ->
+                    gitlab.getGroupApi().getProjects(group, filter, perPage).all())) {
+                projects.add(RosterProject.of(project));
+            }
+            updated = true;
+        }
+        if (updated) {
+            var syncedAt = projects.stream()
+                    .map(RosterProject::lastActivityAt)
+                    .max(naturalOrder()).orElse(null);
+            write(file, new Snapshot(syncedAt, rebuiltAt, projects));
+        }
+        return projects;
+    }
+
+    private void write(Path file, Snapshot snapshot) throws IOException {
+        createDirectories(dir);
+        // write to temporary file first, so that an interrupted run does not
+        // leave a corrupt snapshot behind
+        var temp = dir.resolve(file.getFileName() + ".tmp");
+        mapper.writeValue(temp.toFile(), snapshot);
+        move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    public record RosterProject(long id, String name, String defaultBranch, String webUrl,
+                                Date lastActivityAt) {
+
+        static RosterProject of(Project project) {
+            return new RosterProject(project.getId(), project.getName(), project.getDefaultBranch(),
+                    project.getWebUrl(), project.getLastActivityAt());
+        }
+    }
+
+    private record Snapshot(Date syncedAt, Date rebuiltAt, List<RosterProject> projects) {}
+}
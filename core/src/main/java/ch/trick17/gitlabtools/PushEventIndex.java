@@ -0,0 +1,197 @@
+package ch.trick17.gitlabtools;
+
+import org.gitlab4j.api.EventsApi;
+import org.gitlab4j.api.GitLabApiException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static java.lang.Long.parseLong;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.util.Comparator.comparing;
+import static org.gitlab4j.api.Constants.ActionType.PUSHED;
+import static org.gitlab4j.api.Constants.SortOrder.DESC;
+
+/**
+ * A local index of the push events of GitLab projects, which allows to look up
+ * the last commit pushed to a branch before a given instant without querying
+ * the events API. The index of each project is kept in a TSV file and synced
+ * incrementally: only events newer than the newest indexed event are fetched.
+ * Lookups are answered by binary search over the pushes of a branch.
+ */
+public class PushEventIndex {
+
+    private final EventsApi eventsApi;
+    private final Path dir;
+    private final int perPage;
+    private final RetryPolicy retry;
+    private final Map<Long, ProjectIndex> projects = new ConcurrentHashMap<>();
+
+    public PushEventIndex(EventsApi eventsApi, Path dir, int perPage, RetryPolicy retry) {
+        this.eventsApi = eventsApi;
+        this.dir = dir;
+        this.perPage = perPage;
+        this.retry = retry;
+    }
+
+    /**
+     * Returns the last commit pushed to the given branch of the given project
+     * at or before the given cutoff (and not before <code>notBefore</code>,
+     * if given) by an author matching the given predicate, or
+     * <code>null</code> if there is none. The index of the project is synced
+     * the first time it is used.
+     */
+    public String lastPushedCommit(long projectId, String branch, Instant cutoff,
+                                   Predicate<String> author, Instant notBefore)
+            throws GitLabApiException, IOException {
+        var index = projects.get(projectId);
+        if (index == null) {
+            index = sync(projectId, notBefore);
+            projects.put(projectId, index);
+        }
+        var pushes = index.byBranch.getOrDefault(branch, List.of());
+
+        // binary search for the last push at or before the cutoff...
+        int low = 0;
+        int high = pushes.size();
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (pushes.get(mid).time > cutoff.toEpochMilli()) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        // ...then go back to the last one by a matching author
+        for (int i = low - 1; i >= 0; i--) {
+            var push = pushes.get(i);
+            if (notBefore != null && push.time < notBefore.toEpochMilli()) {
+                break;
+            }
+            if (author.test(push.author)) {
+                return push.commit;
+            }
+        }
+        return null;
+    }
+
+    private ProjectIndex sync(long projectId, Instant notBefore) throws GitLabApiException, IOException {
+        var file = dir.resolve(projectId + ".tsv");
+        var index = exists(file) ? read(file) : null;
+        if (index != null && index.since != null
+                && (notBefore == null || notBefore.toEpochMilli() < index.since)) {
+            index = null; // index does not reach back far enough; rebuild
+        }
+        if (index == null) {
+            index = new ProjectIndex(notBefore == null ? null : notBefore.toEpochMilli());
+        }
+
+        // fetch events from the newest backwards, until reaching indexed ones
+        // (event IDs are increasing) or the lower bound
+        var after = notBefore == null || index.maxId >= 0
+                ? null
+                : Date.from(notBefore.minus(1, DAYS)); // GitLab ignores time of day
+        var description = "events of project " + projectId;
+        var pages = retry.call(description, () ->
+                eventsApi.getProjectEvents(projectId, PUSHED, null, null, after, DESC, perPage));
+        var newPushes = new ArrayList<Push>();
+        var indexedId = index.maxId;
+        scan:
+        while (pages.hasNext()) {
+            for (var event : retry.call(description, pages::next)) {
+                var time = event.getCreatedAt().getTime();
+                if (event.getId() <= indexedId || index.since != null && time < index.since) {
+                    break scan;
+                }
+                var data = event.getPushData();
+                if (data != null && data.getCommitTo() != null) {
+                    newPushes.add(new Push(event.getId(), time, event.getAuthorUsername(),
+                            data.getRef(), data.getCommitTo()));
+                }
+                index.maxId = Math.max(index.maxId, event.getId());
+            }
+        }
+
+        if (index.maxId != indexedId || !exists(file)) {
+            newPushes.sort(comparing((Push p) -> p.time).thenComparing(p -> p.id));
+            newPushes.forEach(index::add);
+            write(file, index);
+        }
+        return index;
+    }
+
+    private static ProjectIndex read(Path file) throws IOException {
+        var lines = Files.readAllLines(file);
+        var header = lines.get(0).split("\t");
+        var index = new ProjectIndex(header[1].equals("-") ? null : parseLong(header[1]));
+        index.maxId = parseLong(header[2]);
+        for (var line : lines.subList(1, lines.size())) {
+            var parts = line.split("\t");
+            index.add(new Push(parseLong(parts[0]), parseLong(parts[1]),
+                    parts[2].isEmpty() ? null : parts[2], parts[3], parts[4]));
+        }
+        return index;
+    }
+
+    private void write(Path file, ProjectIndex index) throws IOException {
+        createDirectories(dir);
+        var out = new StringBuilder();
+        out.append("#\t").append(index.since == null ? "-" : index.since)
+                .append("\t").append(index.maxId).append("\n");
+        index.byBranch.values().stream()
+                .flatMap(List::stream)
+                .sorted(comparing((Push p) -> p.time).thenComparing(p -> p.id))
+                .forEach(p -> out.append(p.id).append("\t").append(p.time).append("\t")
+                        .append(p.author == null ? "" : p.author).append("\t").append(p.ref).append("\t")
+                        .append(p.commit).append("\n"));
+        // write to temporary file first, so that an interrupted run does not
+        // leave a corrupt index behind
+        var temp = dir.resolve(file.getFileName() + ".tmp");
+        Files.writeString(temp, out);
+        move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static class ProjectIndex {
+        final Long since; // null if the index covers the whole history
+        final Map<String, List<Push>> byBranch = new HashMap<>(); // sorted by time
+        long maxId = -1;
+
+        ProjectIndex(Long since) {
+            this.since = since;
+        }
+
+        void add(Push push) {
+            byBranch.computeIfAbsent(push.ref, r -> new ArrayList<>()).add(push);
+        }
+    }
+
+    private static class Push {
+        final long id;
+        final long time;
+        final String author; // null for events of deleted users
+        final String ref;
+        final String commit;
+
+        Push(long id, long time, String author, String ref, String commit) {
+            this.id = id;
+            this.time = time;
+            this.author = author;
+            this.ref = ref;
+            this.commit = commit;
+        }
+    }
+}
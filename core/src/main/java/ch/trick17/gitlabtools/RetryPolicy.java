@@ -0,0 +1,278 @@
+package ch.trick17.gitlabtools;
+
+import org.eclipse.jgit.api.errors.TransportException;
+import org.gitlab4j.api.GitLabApi;
+import org.gitlab4j.api.GitLabApiException;
+
+import javax.ws.rs.ProcessingException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static java.lang.Math.min;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Retries failed GitLab API calls and Git transport operations, using
+ * exponential backoff with jitter. Only errors that are likely to be
+ * temporary are retried (see {@link #isRetryable(Throwable)}).
+ * <p>
+ * The policy also acts as a circuit breaker: when a number of calls in a row
+ * (across all threads that share the policy) have failed, the server is
+ * considered to be down and all calls wait for a while before trying again,
+ * instead of using up their attempts.
+ */
+public class RetryPolicy {
+
+    private static final int BREAKER_THRESHOLD = 5;
+    private static final Duration BREAKER_PAUSE = Duration.ofSeconds(30);
+
+    private final int retries;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final Listener listener;
+
+    // circuit breaker state, guarded by 'this'
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+
+    /**
+     * Creates a policy that retries a failed call up to <code>retries</code>
+     * times, waiting <code>initialDelay</code> before the first retry and
+     * doubling the delay for each further retry, up to <code>maxDelay</code>.
+     * The listener is notified before each retry.
+     */
+    public RetryPolicy(int retries, Duration initialDelay, Duration maxDelay, Listener listener) {
+        if (retries < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.retries = retries;
+        this.initialDelay = initialDelay.toMillis();
+        this.maxDelay = maxDelay.toMillis();
+        this.listener = listener;
+    }
+
+    /**
+     * Executes the given action, retrying it if it fails with a retryable
+     * exception. If all attempts fail, the last exception is thrown.
+     */
+    public <T, E extends Exception> T call(String description, Action<T, E> action) throws E {
+        for (int attempt = 0; ; attempt++) {
+            awaitClosedCircuit();
+            try {
+                var result = action.run();
+                recordSuccess();
+                return result;
+            } catch (Exception e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                recordFailure();
+                var attemptsLeft = retries - attempt;
+                if (attemptsLeft == 0) {
+                    throw e;
+                }
+                var delay = delay(attempt);
+                listener.retrying(description, e, attemptsLeft, Duration.ofMillis(delay));
+                if (!sleep(delay)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Like {@link #call(String, Action)}, but for gitlab4j's
+     * <code>getOptional...</code> methods, which do not throw but return an
+     * empty optional for any error. Only "404 Not Found" is taken to mean
+     * that the object does not exist; other errors are thrown (and retried,
+     * if they are retryable).
+     */
+    public <T> Optional<T> callOptional(String description, Action<Optional<T>, GitLabApiException> action)
+            throws GitLabApiException {
+        return call(description, () -> checked(action.run()));
+    }
+
+    /**
+     * Like {@link #call(String, Action)}, but for GitLab API calls that create
+     * something and therefore are not idempotent. A request that timed out or
+     * failed with a server error may still have been applied, in which case
+     * the retry fails because the object already exists (usually with status
+     * 400 or 409). If that happens after such an ambiguous failure, the object
+     * is looked up using <code>existing</code> and, if found, the creation is
+     * considered successful. Without an earlier failure, the error is thrown
+     * as usual, so an object that existed before is still reported.
+     */
+    public <T> T callCreate(String description, Action<T, GitLabApiException> create,
+                            Action<Optional<T>, GitLabApiException> existing) throws GitLabApiException {
+        var ambiguous = new boolean[1];
+        return call(description, () -> {
+            try {
+                return create.run();
+            } catch (GitLabApiException e) {
+                if (ambiguous[0] && (e.getHttpStatus() == 400 || e.getHttpStatus() == 409)) {
+                    var found = checked(existing.run());
+                    if (found.isPresent()) {
+                        return found.get();
+                    }
+                }
+                // rate limited requests have not been applied
+                ambiguous[0] |= isRetryable(e) && e.getHttpStatus() != 429;
+                throw e;
+            } catch (RuntimeException e) {
+                ambiguous[0] |= isRetryable(e);
+                throw e;
+            }
+        });
+    }
+
+    private static <T> Optional<T> checked(Optional<T> optional) throws GitLabApiException {
+        var e = GitLabApi.getOptionalException(optional);
+        if (e != null && e.getHttpStatus() != 404) {
+            throw e;
+        }
+        return optional;
+    }
+
+    /**
+     * Like {@link #call(String, Action)}, but for asynchronous actions: if
+     * the future returned by the action fails with a retryable exception,
+     * the action is started again after the backoff. No thread is blocked
+     * while waiting, neither for the backoff nor for an open circuit.
+     */
+    public <T> CompletableFuture<T> callAsync(String description, Supplier<CompletableFuture<T>> action) {
+        return callAsync(description, action, 0);
+    }
+
+    private <T> CompletableFuture<T> callAsync(String description, Supplier<CompletableFuture<T>> action,
+                                               int attempt) {
+        return after(circuitWait()).thenCompose(v -> action.get()).handle((result, e) -> {
+            if (e == null) {
+                recordSuccess();
+                return completedFuture(result);
+            }
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (!isRetryable(cause)) {
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+            recordFailure();
+            var attemptsLeft = retries - attempt;
+            if (attemptsLeft == 0) {
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+            var delay = delay(attempt);
+            listener.retrying(description, cause instanceof Exception ex ? ex : new CompletionException(cause),
+                    attemptsLeft, Duration.ofMillis(delay));
+            return after(delay).thenCompose(v -> callAsync(description, action, attempt + 1));
+        }).thenCompose(f -> f);
+    }
+
+    /**
+     * Like {@link #call(String, Action)}, but for actions without a result.
+     */
+    public <E extends Exception> void run(String description, VoidAction<E> action) throws E {
+        call(description, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns whether the given exception is (likely) caused by a temporary
+     * problem: Git transport errors, server errors (5xx), rate limiting
+     * (429), timeouts and other network errors. Local I/O errors and other
+     * HTTP errors (e.g., 404) are not retryable.
+     */
+    public static boolean isRetryable(Throwable e) {
+        for (var t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransportException
+                    || t instanceof ProcessingException
+                    || t instanceof SocketException
+                    || t instanceof SocketTimeoutException
+                    || t instanceof HttpTimeoutException) {
+                return true;
+            }
+            if (t instanceof GitLabApiException) {
+                var status = ((GitLabApiException) t).getHttpStatus();
+                if (status == 429 || status >= 500) {
+                    return true;
+                }
+                if (status != 0) {
+                    return false; // other HTTP errors are permanent
+                }
+            }
+        }
+        return false;
+    }
+
+    private long delay(int attempt) {
+        // "full jitter": random delay between 0 and the backoff
+        var backoff = min(maxDelay, initialDelay << min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    private static CompletableFuture<Void> after(long millis) {
+        return millis > 0
+                ? runAsync(() -> {}, delayedExecutor(millis, MILLISECONDS))
+                : completedFuture(null);
+    }
+
+    private synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    private synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (consecutiveFailures >= BREAKER_THRESHOLD) {
+            var now = System.currentTimeMillis();
+            if (openUntil < now) {
+                openUntil = now + BREAKER_PAUSE.toMillis();
+                listener.circuitOpened(BREAKER_PAUSE);
+            }
+        }
+    }
+
+    private void awaitClosedCircuit() {
+        var wait = circuitWait();
+        if (wait > 0) {
+            sleep(wait);
+        }
+    }
+
+    private synchronized long circuitWait() {
+        return openUntil - System.currentTimeMillis();
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public interface Action<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    public interface VoidAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    public interface Listener {
+        void retrying(String description, Exception e, int attemptsLeft, Duration delay);
+
+        void circuitOpened(Duration pause);
+    }
+}
@@ -0,0 +1,107 @@
+package ch.trick17.gitlabtools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A thin client for a gitlab-tools server, started with the
+ * <code>serve</code> command. It sends a command invocation (as given on the
+ * command line) to the server over a Unix domain socket and streams the
+ * output of the command back. Since this class only depends on
+ * <code>java.base</code>, the client starts quickly, and the actual command
+ * runs in the server's warm JVM.
+ * <p>
+ * Usage: <code>java -cp gitlab-tools.jar ch.trick17.gitlabtools.ServeClient
+ * [--socket &lt;path&gt;] &lt;command&gt; [&lt;args&gt;...]</code>. The
+ * command <code>stop</code> stops the server.
+ * <p>
+ * Protocol: the client sends the lines {@value #PROTOCOL}, its working
+ * directory, whether its output is a terminal, the number of arguments, and
+ * the arguments. The server answers with the output of the command,
+ * followed by {@value #END} and the exit code.
+ */
+public class ServeClient {
+
+    public static final String PROTOCOL = "gitlab-tools/1";
+    public static final String DEFAULT_SOCKET = ".gitlab-tools/serve.sock";
+    public static final char END = '\0';
+
+    public static void main(String[] args) {
+        var socket = Path.of(DEFAULT_SOCKET);
+        var start = 0;
+        if (args.length >= 2 && args[0].equals("--socket")) {
+            socket = Path.of(args[1]);
+            start = 2;
+        }
+        var commandArgs = new String[args.length - start];
+        System.arraycopy(args, start, commandArgs, 0, commandArgs.length);
+        if (commandArgs.length == 0) {
+            System.err.println("No command specified.");
+            System.exit(2);
+        }
+        try {
+            System.exit(run(socket, commandArgs, System.console() != null, System.out));
+        } catch (ConnectException | NoSuchFileException e) {
+            System.err.println("No gitlab-tools server running at " + socket +
+                    ". Start one with the 'serve' command.");
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Communication with server failed: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Runs the given command invocation on the server listening on the given
+     * socket, copies its output to the given stream, and returns the exit
+     * code.
+     */
+    public static int run(Path socket, String[] args, boolean tty, OutputStream output) throws IOException {
+        for (var arg : args) {
+            if (arg.contains("\n")) {
+                throw new IllegalArgumentException("line breaks in arguments not supported");
+            }
+        }
+        try (var channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            var out = new PrintStream(Channels.newOutputStream(channel), false, UTF_8);
+            out.println(PROTOCOL);
+            out.println(Path.of("").toAbsolutePath());
+            out.println(tty);
+            out.println(args.length);
+            for (var arg : args) {
+                out.println(arg);
+            }
+            out.flush();
+            return copyOutput(Channels.newInputStream(channel), output);
+        }
+    }
+
+    private static int copyOutput(InputStream in, OutputStream output) throws IOException {
+        var buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == END) {
+                    output.write(buffer, 0, i);
+                    output.flush();
+                    var rest = new String(buffer, i + 1, read - i - 1, UTF_8)
+                            + new String(in.readAllBytes(), UTF_8);
+                    return Integer.parseInt(rest.strip());
+                }
+            }
+            output.write(buffer, 0, read);
+            output.flush();
+        }
+        throw new IOException("connection closed by server");
+    }
+}
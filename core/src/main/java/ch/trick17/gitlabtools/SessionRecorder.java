@@ -0,0 +1,208 @@
+package ch.trick17.gitlabtools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static java.net.http.HttpClient.Version.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Records the GitLab API requests of a command run, together with the
+ * responses and their timing, so that they can be replayed later using a
+ * {@link SessionReplayer}. The recorder is a local HTTP proxy: the
+ * {@link org.gitlab4j.api.GitLabApi} is pointed to {@link #url()} and all
+ * requests are forwarded to the actual GitLab server.
+ * <p>
+ * The session is written to a gzipped file with one JSON object per line:
+ * a header, followed by one entry per exchange. Request headers are not
+ * recorded, so access tokens do not end up in the file; tokens in query
+ * parameters or response bodies are redacted as well.
+ */
+public class SessionRecorder implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .setSerializationInclusion(NON_NULL);
+
+    private static final Set<String> RESTRICTED_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "upgrade",
+            "accept-encoding", "transfer-encoding");
+    private static final Set<String> TOKEN_PARAMS = Set.of("private_token", "access_token");
+    private static final String REDACTED = "[REDACTED]";
+
+    private final String target;
+    private final HttpServer server;
+    private final ExecutorService executor = newCachedThreadPool();
+    private final HttpClient client = HttpClient.newBuilder().version(HTTP_1_1).build();
+    private final Writer out; // guarded by itself
+    private final long start = System.nanoTime();
+
+    public SessionRecorder(String targetUrl, Path file) throws IOException {
+        target = targetUrl.replaceAll("/$", "");
+        out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), UTF_8);
+        write(new Header(1, target));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            var time = (System.nanoTime() - start) / 1_000_000;
+            var uri = exchange.getRequestURI().toString();
+            var request = HttpRequest.newBuilder(URI.create(target + uri));
+            var body = exchange.getRequestBody().readAllBytes();
+            request.method(exchange.getRequestMethod(), body.length == 0
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(body));
+            String token = null;
+            for (var header : exchange.getRequestHeaders().entrySet()) {
+                var name = header.getKey().toLowerCase();
+                if (name.equals("private-token")) {
+                    token = header.getValue().get(0);
+                }
+                if (!RESTRICTED_HEADERS.contains(name)) {
+                    header.getValue().forEach(v -> request.header(header.getKey(), v));
+                }
+            }
+
+            var sent = System.nanoTime();
+            HttpResponse<byte[]> response;
+            try {
+                response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            var duration = (System.nanoTime() - sent) / 1_000_000;
+
+            var headers = new LinkedHashMap<String, String>();
+            response.headers().map().forEach((name, values) -> {
+                if (!RESTRICTED_HEADERS.contains(name.toLowerCase()) && !name.startsWith(":")) {
+                    headers.put(name, String.join(",", values));
+                    exchange.getResponseHeaders().put(name, values);
+                }
+            });
+            var responseBody = response.body();
+            var type = headers.entrySet().stream()
+                    .filter(h -> h.getKey().equalsIgnoreCase("Content-Type"))
+                    .map(Map.Entry::getValue)
+                    .findFirst().orElse("");
+            var text = type.contains("json") || type.startsWith("text/");
+            var recordedBody = text ? new String(responseBody, UTF_8) : null;
+            if (recordedBody != null && token != null) {
+                recordedBody = recordedBody.replace(token, REDACTED);
+            }
+            write(new Exchange(exchange.getRequestMethod(), redact(uri), time, duration,
+                    response.statusCode(), headers, recordedBody,
+                    text ? null : Base64.getEncoder().encodeToString(responseBody)));
+
+            exchange.sendResponseHeaders(response.statusCode(),
+                    responseBody.length == 0 ? -1 : responseBody.length);
+            exchange.getResponseBody().write(responseBody);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Removes access tokens from the query of the given URI.
+     */
+    static String redact(String uri) {
+        var query = uri.indexOf('?');
+        if (query < 0) {
+            return uri;
+        }
+        var params = new ArrayList<String>();
+        for (var param : uri.substring(query + 1).split("&")) {
+            if (!TOKEN_PARAMS.contains(param.split("=", 2)[0])) {
+                params.add(param);
+            }
+        }
+        return uri.substring(0, query) + (params.isEmpty() ? "" : "?" + String.join("&", params));
+    }
+
+    private void write(Object entry) throws IOException {
+        var line = JSON.writeValueAsString(entry);
+        synchronized (out) {
+            out.write(line);
+            out.write('\n');
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        synchronized (out) {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the exchanges of a recorded session, in the order in which they
+     * were recorded.
+     */
+    public static List<Exchange> read(Path file) throws IOException {
+        var exchanges = new ArrayList<Exchange>();
+        try (var in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), UTF_8))) {
+            var header = JSON.readValue(in.readLine(), Header.class);
+            if (header.version() != 1) {
+                throw new IOException("unsupported session version " + header.version());
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                exchanges.add(JSON.readValue(line, Exchange.class));
+            }
+        }
+        return exchanges;
+    }
+
+    public record Header(int version, String url) {}
+
+    /**
+     * A recorded exchange. The time (since the start of the recording) and the
+     * duration until the response arrived are given in milliseconds. The
+     * body is stored as text if it is JSON or text and as Base64 otherwise.
+     */
+    public record Exchange(String method, String uri, long time, long duration, int status,
+                           Map<String, String> headers, String body, String base64Body) {
+        byte[] bodyBytes() {
+            if (body != null) {
+                return body.getBytes(UTF_8);
+            }
+            return base64Body == null ? new byte[0] : Base64.getDecoder().decode(base64Body);
+        }
+    }
+}
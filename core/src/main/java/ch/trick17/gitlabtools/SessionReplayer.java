@@ -0,0 +1,100 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.SessionRecorder.Exchange;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Serves the GitLab API responses of a session recorded with a
+ * {@link SessionRecorder}, so that commands can be run (and profiled)
+ * repeatedly without contacting the server. Requests are matched by method
+ * and URI; if the same request was recorded several times, the responses are
+ * served in the recorded order (and the last one is repeated). Each response
+ * is delayed by its recorded duration, multiplied by a time scale (e.g.,
+ * 0 to serve responses as fast as possible).
+ * <p>
+ * Only API requests are replayed. Git operations (e.g., in the checkout
+ * commands) are not part of the recording.
+ */
+public class SessionReplayer implements AutoCloseable {
+
+    private final double timeScale;
+    private final Map<String, Deque<Exchange>> exchanges = new HashMap<>(); // guarded by itself
+    private final HttpServer server;
+    private final ExecutorService executor = newCachedThreadPool();
+
+    public SessionReplayer(Path file, double timeScale) throws IOException {
+        if (timeScale < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.timeScale = timeScale;
+        for (var exchange : SessionRecorder.read(file)) {
+            exchanges.computeIfAbsent(key(exchange.method(), exchange.uri()), k -> new ArrayDeque<>())
+                    .add(exchange);
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange http) throws IOException {
+        try {
+            http.getRequestBody().readAllBytes();
+            var key = key(http.getRequestMethod(),
+                    SessionRecorder.redact(http.getRequestURI().toString()));
+            Exchange exchange;
+            synchronized (exchanges) {
+                var queue = exchanges.get(key);
+                exchange = queue == null ? null
+                        : queue.size() > 1 ? queue.poll() : queue.peek();
+            }
+            if (exchange == null) {
+                var body = ("{\"message\":\"not recorded: " + key + "\"}").getBytes(UTF_8);
+                http.getResponseHeaders().set("Content-Type", "application/json");
+                http.sendResponseHeaders(404, body.length);
+                http.getResponseBody().write(body);
+                return;
+            }
+
+            var delay = (long) (exchange.duration() * timeScale);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            exchange.headers().forEach(http.getResponseHeaders()::set);
+            var body = exchange.bodyBytes();
+            http.sendResponseHeaders(exchange.status(), body.length == 0 ? -1 : body.length);
+            http.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            http.close();
+        }
+    }
+
+    private static String key(String method, String uri) {
+        return method + " " + uri;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,195 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.jfr.SpanEvent;
+import ch.trick17.gitlabtools.jfr.SpanEvents;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.FlightRecorder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records spans of time for the phases of a command (e.g., API calls or Git
+ * operations), per thread and project, and writes them as a trace in the
+ * Chrome trace event format, which can be viewed with
+ * <code>chrome://tracing</code> or <a href="https://ui.perfetto.dev">Perfetto</a>.
+ * <p>
+ * Spans are started with {@link #span(Kind, String, String)} and ended by
+ * closing them, typically in a try-with-resources statement. Spans started
+ * within another span on the same thread are attributed to the project of
+ * the enclosing span, if none is given. A disabled tracer records nothing and
+ * has negligible overhead.
+ * <p>
+ * Independently of whether the tracer is enabled, every span is also emitted
+ * as a JFR event (see {@link ch.trick17.gitlabtools.jfr}) if a flight
+ * recording with these events enabled is running.
+ */
+public class Tracer {
+
+    public enum Kind { COMMAND, PROJECT, API_CALL, GIT_OPERATION, PHASE }
+
+    private static final Span NO_SPAN = () -> {};
+
+    private final boolean enabled;
+    private final long start = System.nanoTime();
+    private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<String> project = new ThreadLocal<>();
+
+    public Tracer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a {@link Kind#PHASE} span with the given name, attributed to the
+     * project of the enclosing span on the current thread, if any.
+     */
+    public Span span(String name) {
+        return span(Kind.PHASE, name);
+    }
+
+    /**
+     * Starts a {@link Kind#PHASE} span with the given name, attributed to the
+     * given project (may be <code>null</code>).
+     */
+    public Span span(String name, String project) {
+        return span(Kind.PHASE, name, project);
+    }
+
+    /**
+     * Starts a span of the given kind, attributed to the project of the
+     * enclosing span on the current thread, if any.
+     */
+    public Span span(Kind kind, String name) {
+        return span(kind, name, project.get());
+    }
+
+    /**
+     * Starts a span of the given kind and with the given name, attributed to
+     * the given project (may be <code>null</code>). The span must be closed
+     * by the same thread.
+     */
+    public Span span(Kind kind, String name, String project) {
+        // without a flight recorder, not even load the event classes (and
+        // the JFR classes they pull in), to keep startup fast
+        var jfrEvent = FlightRecorder.isInitialized() ? SpanEvents.create(kind) : null;
+        var jfrEnabled = jfrEvent != null && jfrEvent.isEnabled();
+        if (!enabled && !jfrEnabled) {
+            return NO_SPAN;
+        }
+        if (jfrEnabled) {
+            jfrEvent.begin();
+        }
+        return new RecordingSpan(kind, name, project, jfrEnabled ? jfrEvent : null);
+    }
+
+    /**
+     * Writes all spans recorded so far to the given file.
+     */
+    public void write(Path file) throws IOException {
+        var traceEvents = new ArrayList<Map<String, Object>>();
+        var threads = new LinkedHashMap<Long, String>();
+        for (var event : events) {
+            threads.putIfAbsent(event.threadId, event.threadName);
+            var json = new LinkedHashMap<String, Object>();
+            json.put("name", event.name);
+            json.put("cat", event.kind.name().toLowerCase());
+            json.put("ph", "X");
+            json.put("ts", event.start / 1000.0);
+            json.put("dur", event.duration / 1000.0);
+            json.put("pid", 1);
+            json.put("tid", event.threadId);
+            var args = new LinkedHashMap<String, Object>();
+            if (event.project != null) {
+                args.put("project", event.project);
+            }
+            if (event.items >= 0) {
+                args.put("items", event.items);
+            }
+            if (event.outcome != null) {
+                args.put("outcome", event.outcome);
+            }
+            if (!args.isEmpty()) {
+                json.put("args", args);
+            }
+            traceEvents.add(json);
+        }
+        threads.forEach((id, name) -> traceEvents.add(Map.of(
+                "name", "thread_name", "ph", "M", "pid", 1, "tid", id,
+                "args", Map.of("name", name))));
+        new ObjectMapper().writeValue(file.toFile(),
+                Map.of("traceEvents", traceEvents, "displayTimeUnit", "ms"));
+    }
+
+    public interface Span extends AutoCloseable {
+        /**
+         * Sets the number of items (e.g., list entries) that the operation
+         * of this span produced.
+         */
+        default void setItems(int items) {}
+
+        /**
+         * Sets the outcome of the operation of this span, e.g.,
+         * "success" or the kind of error.
+         */
+        default void setOutcome(String outcome) {}
+
+        @Override
+        void close();
+    }
+
+    private class RecordingSpan implements Span {
+        final Kind kind;
+        final String name;
+        final String project;
+        final SpanEvent jfrEvent; // null if not enabled
+        final String enclosing;
+        final Thread thread = Thread.currentThread();
+        final long begin = System.nanoTime();
+        int items = -1;
+        String outcome;
+
+        RecordingSpan(Kind kind, String name, String project, SpanEvent jfrEvent) {
+            this.kind = kind;
+            this.name = name;
+            this.project = project;
+            this.jfrEvent = jfrEvent;
+            enclosing = Tracer.this.project.get();
+            Tracer.this.project.set(project);
+        }
+
+        public void setItems(int items) {
+            this.items = items;
+        }
+
+        public void setOutcome(String outcome) {
+            this.outcome = outcome;
+        }
+
+        public void close() {
+            var end = System.nanoTime();
+            if (jfrEvent != null && jfrEvent.shouldCommit()) {
+                jfrEvent.name = name;
+                jfrEvent.project = project;
+                jfrEvent.items = items;
+                jfrEvent.outcome = outcome;
+                jfrEvent.commit();
+            }
+            if (enabled) {
+                events.add(new Event(kind, name, project, thread.getId(), thread.getName(),
+                        begin - start, end - begin, items, outcome));
+            }
+            Tracer.this.project.set(enclosing);
+        }
+    }
+
+    private record Event(Kind kind, String name, String project, long threadId, String threadName,
+                         long start, long duration, int items, String outcome) {}
+}
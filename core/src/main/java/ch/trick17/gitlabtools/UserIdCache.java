@@ -0,0 +1,90 @@
+package ch.trick17.gitlabtools;
+
+import org.gitlab4j.api.GitLabApiException;
+import org.gitlab4j.api.UserApi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Resolves GitLab usernames to user IDs using targeted per-username lookups
+ * (instead of downloading all users of the GitLab instance). Resolved IDs are
+ * kept in a simple tab-separated file, so that subsequent runs do not need to
+ * query them again. The cache is thread-safe; lookups are done outside of
+ * the lock, so several threads may look up the same username at the same
+ * time.
+ */
+public class UserIdCache {
+
+    private final UserApi userApi;
+    private final Path file;
+    // guarded by 'this'
+    private final Map<String, Long> ids = new HashMap<>();
+    private boolean modified = false;
+
+    public UserIdCache(UserApi userApi, Path file) throws IOException {
+        this.userApi = userApi;
+        this.file = file;
+        if (exists(file)) {
+            for (var line : Files.readAllLines(file)) {
+                var parts = line.split("\t");
+                if (parts.length == 2) {
+                    ids.put(parts[0], Long.valueOf(parts[1]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ID of the user with the given username, or
+     * <code>null</code> if no such user exists.
+     */
+    public Long getId(String username) throws GitLabApiException {
+        synchronized (this) {
+            var id = ids.get(username);
+            if (id != null) {
+                return id;
+            }
+        }
+        var user = userApi.getUser(username);
+        if (user == null) {
+            return null;
+        }
+        synchronized (this) {
+            ids.put(username, user.getId());
+            modified = true;
+        }
+        return user.getId();
+    }
+
+    /**
+     * Removes the cached ID for the given username, e.g., because the ID
+     * turned out to be stale.
+     */
+    public synchronized void invalidate(String username) {
+        modified |= ids.remove(username) != null;
+    }
+
+    /**
+     * Writes the cached IDs back to the file, if anything has changed.
+     */
+    public synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        if (file.getParent() != null) {
+            createDirectories(file.getParent());
+        }
+        Files.writeString(file, ids.entrySet().stream()
+                .map(e -> e.getKey() + "\t" + e.getValue() + "\n")
+                .collect(joining()));
+        modified = false;
+    }
+}
@@ -0,0 +1,13 @@
+package ch.trick17.gitlabtools.auth;
+
+/**
+ * Creates personal access tokens, given the username and password of a
+ * GitLab user. Implementations are looked up with a
+ * {@link java.util.ServiceLoader}, so that token creation (and its
+ * dependencies) can be left out of the distribution.
+ */
+public interface AccessTokenCreator {
+
+    String createAccessToken(String gitLabUrl, String username, String password, String tokenName)
+            throws TokenCreationException, AuthenticationException;
+}
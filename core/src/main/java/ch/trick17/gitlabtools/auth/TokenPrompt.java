@@ -0,0 +1,76 @@
+package ch.trick17.gitlabtools.auth;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+import java.util.ServiceLoader;
+
+/**
+ * Interactively creates an access token, using an {@link AccessTokenCreator},
+ * if the token file does not exist yet. If no token creator is available
+ * (the auth module is not on the class path), tells the user how to create
+ * the token manually.
+ */
+public class TokenPrompt {
+
+    public static void promptCreateToken(String gitLabUrl, Path tokenFile) throws IOException {
+        var creator = ServiceLoader.load(AccessTokenCreator.class).findFirst();
+        if (creator.isEmpty()) {
+            System.out.println("Token file '" + tokenFile + "' does not exist.");
+            printManualInstructions(gitLabUrl, tokenFile);
+            System.exit(1);
+        }
+        var shortUrl = gitLabUrl
+                .replaceAll("^https?://", "")
+                .replaceAll("/$", "");
+        System.out.print("Token file '" + tokenFile + "' does not exist. " +
+                "Create a new access token on " + shortUrl + "? [Y/n] ");
+        var reply = new Scanner(System.in).nextLine().strip().toLowerCase();
+        if (reply.isEmpty() || reply.charAt(0) != 'n') {
+            createToken(creator.get(), gitLabUrl, tokenFile);
+        } else {
+            System.exit(0);
+        }
+    }
+
+    private static void createToken(AccessTokenCreator creator, String gitLabUrl, Path tokenFile)
+            throws IOException {
+        var scanner = new Scanner(System.in);
+        while (true) {
+            System.out.print("GitLab username? ");
+            var username = scanner.nextLine();
+            System.out.print("GitLab password? ");
+            String password;
+            if (System.console() != null) {
+                password = new String(System.console().readPassword()); // no echo
+            } else {
+                password = scanner.nextLine();
+            }
+            try {
+                var token = creator.createAccessToken(gitLabUrl, username, password, "gitlab-tools");
+                Files.writeString(tokenFile, token);
+                System.out.println("Access token stored in " + tokenFile.toAbsolutePath());
+                break;
+            } catch (AuthenticationException e) {
+                System.out.print("Authentication failed, likely due to invalid credentials. Retry? [Y/n] ");
+                var reply = scanner.nextLine().strip().toLowerCase();
+                if (!reply.isEmpty() && reply.charAt(0) == 'n') {
+                    System.exit(0);
+                }
+                // else: try again
+            } catch (TokenCreationException e) {
+                System.out.println("\nCould not create token.");
+                printManualInstructions(gitLabUrl, tokenFile);
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void printManualInstructions(String gitLabUrl, Path tokenFile) {
+        var slash = gitLabUrl.endsWith("/") ? "" : "/";
+        System.out.println("Create the token manually here:\n" +
+                gitLabUrl + slash + "-/profile/personal_access_tokens\n" +
+                "and store it in the file " + tokenFile);
+    }
+}
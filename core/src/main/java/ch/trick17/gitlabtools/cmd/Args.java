@@ -0,0 +1,97 @@
+package ch.trick17.gitlabtools.cmd;
+
+import com.lexicalscope.jewel.cli.Option;
+
+public interface Args {
+    @Option(defaultValue = "https://gitlab.fhnw.ch/")
+    String getGitLabUrl();
+
+    @Option(defaultValue = "token.txt")
+    String getTokenFile();
+
+    /**
+     * The path of the group. Commands that process existing projects also
+     * accept several comma-separated groups, and group patterns, in which
+     * <code>*</code> matches any part of a path segment and a trailing
+     * <code>/**</code> matches the group and all its subgroups, e.g.,
+     * <code>prog1/section-*</code>.
+     */
+    @Option
+    String getGroup();
+
+    /**
+     * A local directory in which data fetched from GitLab (e.g., user IDs) is
+     * kept between runs, to avoid fetching it again. Entries are kept
+     * separately for each GitLab instance.
+     */
+    @Option(defaultValue = ".gitlab-tools")
+    String getCacheDir();
+
+    /**
+     * How many times a failed GitLab or Git operation is retried if the
+     * failure seems to be temporary (e.g., a timeout or a server error).
+     */
+    @Option(defaultValue = "2")
+    int getRetries();
+
+    /**
+     * The delay (in milliseconds) before the first retry of a failed
+     * operation. The delay doubles with each further retry and a random part
+     * of it is used, so that parallel workers do not retry all at once.
+     */
+    @Option(defaultValue = "1000")
+    long getRetryDelay();
+
+    /**
+     * Records all GitLab API requests of this run, with their responses and
+     * timing, into the given (gzipped) file, so that the run can be replayed
+     * later using {@link #getReplay()}. Access tokens are not recorded.
+     */
+    @Option(defaultToNull = true)
+    String getRecord();
+
+    /**
+     * Answers GitLab API requests using a file recorded with
+     * {@link #getRecord()} instead of contacting the GitLab server. No token
+     * is needed in this case. Git operations are not recorded and still go
+     * to the server.
+     */
+    @Option(defaultToNull = true)
+    String getReplay();
+
+    /**
+     * During replay, the recorded response times are multiplied with this
+     * factor, e.g., 0 to answer requests as fast as possible.
+     */
+    @Option(defaultValue = "1")
+    double getReplayTimeScale();
+
+    /**
+     * Writes a timeline of the phases of each project (API calls, Git
+     * operations, etc.) into the given file, in the Chrome trace event
+     * format. It can be viewed with <code>chrome://tracing</code> or
+     * Perfetto.
+     */
+    @Option(defaultToNull = true)
+    String getTraceOut();
+
+    /**
+     * Records a JFR flight recording of the command run into the given
+     * file. Besides the usual JVM events, it contains an event for each
+     * command, project, API call, and Git operation, which can be inspected
+     * with JDK Mission Control or the <code>jfr</code> tool.
+     */
+    @Option(defaultToNull = true)
+    String getJfrOut();
+
+    /**
+     * How progress is shown: "dashboard" shows a status area that is updated
+     * in place, which requires an interactive terminal, "compact" prints one
+     * character per step, and "auto" uses the dashboard if possible.
+     */
+    @Option(defaultValue = "auto", pattern = "auto|dashboard|compact")
+    String getProgress();
+
+    @Option(helpRequest = true)
+    boolean getHelp();
+}
@@ -0,0 +1,85 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.AsyncGitLab.UserInfo;
+import ch.trick17.gitlabtools.UserIdCache;
+import com.lexicalscope.jewel.cli.Option;
+import org.gitlab4j.api.GitLabApiException;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static com.lexicalscope.jewel.cli.CliFactory.createCli;
+import static java.util.stream.Collectors.toSet;
+import static org.gitlab4j.api.models.AccessLevel.DEVELOPER;
+
+public class AssignMembersCmd extends CmdForProjects<AssignMembersCmd.Args> {
+
+    private UserIdCache userIds;
+
+    public AssignMembersCmd(String[] rawArgs) throws IOException {
+        super(createCli(Args.class).parseArguments(rawArgs));
+    }
+
+    @Override
+    protected void executeTasks() throws Exception {
+        userIds = new UserIdCache(gitlab.getUserApi(), cacheDir().resolve("user-ids.tsv"));
+        try {
+            forEachProject(project -> {
+                var name = project.name();
+                if (args.isWithProjectNamePrefix()) {
+                    var parts = name.split("_", 2);
+                    if (parts.length != 2) {
+                        throw new AssertionError("unexpected project name " + name + "; expected prefix and _");
+                    }
+                    name = parts[1];
+                }
+
+                // fetch members only once per project
+                var members = getProjectMembers(project).stream()
+                        .map(UserInfo::username)
+                        .collect(toSet());
+                if (args.isTeamProjects()) {
+                    for (var member : name.split("_")) {
+                        addMember(project, members, member);
+                    }
+                } else {
+                    addMember(project, members, name);
+                }
+            });
+        } finally {
+            userIds.save();
+        }
+    }
+
+    private void addMember(ProjectInfo project, Set<String> members, String username) throws Exception {
+        if (!members.contains(username)) {
+            var userId = traced("get user", () -> retry.call(username, () -> userIds.getId(username)));
+            if (userId != null) {
+                try {
+                    var projectApi = gitlab.getProjectApi();
+                    traced("add member", () -> retry.callCreate(project.name(),
+                            () -> projectApi.addMember(project.id(), userId, DEVELOPER),
+                            () -> projectApi.getOptionalMember(project.id(), userId)));
+                    invalidateProjectMembers(project);
+                    progress.advance();
+                } catch (GitLabApiException e) {
+                    // cached ID may be stale; look it up again next time
+                    userIds.invalidate(username);
+                    progress.advance("failed");
+                    progress.message("Error: could not add " + username + " as a member. " +
+                            "Are they member of the containing group?", e);
+                }
+            } else {
+                progress.advance("failed");
+                progress.message("Error: user " + username + " not among GitLab users");
+            }
+        } else {
+            progress.advance("existing");
+        }
+    }
+
+    interface Args extends CmdForProjects.Args {
+        @Option
+        boolean isTeamProjects();
+    }
+}
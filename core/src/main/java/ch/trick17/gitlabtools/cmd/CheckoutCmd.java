@@ -0,0 +1,75 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.Tracer.Kind;
+import com.lexicalscope.jewel.cli.Option;
+import org.eclipse.jgit.api.errors.RefNotFoundException;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static ch.trick17.gitlabtools.cmd.GitUtils.checkOutRemoteBranch;
+import static ch.trick17.gitlabtools.cmd.GitUtils.fetchOrClone;
+import static com.lexicalscope.jewel.cli.CliFactory.createCli;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.util.Objects.requireNonNullElse;
+
+/**
+ * Clones all repositories in the --group into the --destDir directory and
+ * checks out the default or a given branch.
+ */
+public class CheckoutCmd extends CmdForProjects<CheckoutCmd.Args> {
+
+    public CheckoutCmd(String[] rawArgs) throws IOException {
+        super(createCli(Args.class).parseArguments(rawArgs));
+    }
+
+    @Override
+    protected void executeTasks() throws Exception {
+        var credentials = new UsernamePasswordCredentialsProvider("", token);
+
+        var destDir = Path.of(args.getDestDir());
+        createDirectories(destDir);
+
+        progress.message("Checking out projects...");
+        forEachProject(project -> {
+            var repoDir = projectDir(destDir, project);
+            var branch = requireNonNullElse(args.getBranch(), project.defaultBranch());
+
+            var cloning = !exists(repoDir);
+            try (var git = traced(Kind.GIT_OPERATION, cloning ? "clone" : "fetch", () -> retry.call(project.name(),
+                    () -> fetchOrClone(project.webUrl(), repoDir, credentials)))) {
+                if (cloning) {
+                    progress.additionalInfo("newly cloned");
+                }
+
+                if (git.getRepository().findRef("origin/" + branch) == null) {
+                    progress.advance("failed");
+                    progress.message("Remote branch " + branch + " not found for " + project.name());
+                    return;
+                }
+
+                try (var checkout = tracer.span(Kind.GIT_OPERATION, "checkout")) {
+                    checkOutRemoteBranch(git, branch);
+                }
+                progress.advance();
+            } catch (RefNotFoundException e) {
+                progress.advance("failed");
+                progress.message("Branch " + branch + " not found for " + project.name());
+            }
+        });
+    }
+
+    interface Args extends CmdForProjects.Args {
+        @Option
+        String getDestDir();
+
+        /**
+         * The branch to check out. If unspecified, the default branch of each
+         * project will be checked out.
+         */
+        @Option(defaultToNull = true)
+        String getBranch();
+    }
+}
@@ -1,16 +1,18 @@
 package ch.trick17.gitlabtools.cmd;
 
+import ch.trick17.gitlabtools.PushEventIndex;
+import ch.trick17.gitlabtools.Tracer.Kind;
 import com.lexicalscope.jewel.cli.ArgumentValidationException;
 import com.lexicalscope.jewel.cli.Option;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
+import java.util.List;
 
+import static ch.trick17.gitlabtools.cmd.GitUtils.fetchOrClone;
 import static com.lexicalscope.jewel.cli.CliFactory.createCli;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.exists;
@@ -18,7 +20,6 @@ import static java.time.LocalDateTime.now;
 import static java.time.LocalDateTime.parse;
 import static java.time.ZoneId.systemDefault;
 import static java.util.Objects.requireNonNullElse;
-import static org.eclipse.jgit.api.Git.cloneRepository;
 import static org.eclipse.jgit.api.Git.open;
 
 /**
@@ -31,9 +32,8 @@ import static org.eclipse.jgit.api.Git.open;
  */
 public class CheckoutWithDeadlineCmd extends CmdForProjects<CheckoutWithDeadlineCmd.Args> {
 
-    private static final int ATTEMPTS = 3;
-
     private final Instant deadline;
+    private final Instant searchStart;
 
     public CheckoutWithDeadlineCmd(String[] rawArgs) throws IOException {
         super(createCli(Args.class).parseArguments(rawArgs));
@@ -48,73 +48,65 @@ public class CheckoutWithDeadlineCmd extends CmdForProjects<CheckoutWithDeadline
         } catch (DateTimeParseException e) {
             throw new ArgumentValidationException("Invalid deadline: " + args.getDeadline(), e);
         }
+        try {
+            searchStart = args.getSearchStart() == null
+                    ? null
+                    : parse(args.getSearchStart()).atZone(systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new ArgumentValidationException("Invalid search start: " + args.getSearchStart(), e);
+        }
     }
 
     @Override
     protected void executeTasks() throws Exception {
+        if (args.isIndexEvents()) {
+            eventIndex = new PushEventIndex(gitlab.getEventsApi(),
+                    cacheDir().resolve("push-events"), MAX_PER_PAGE, retry);
+        }
+
         var credentials = new UsernamePasswordCredentialsProvider("", token);
 
         var destDir = Path.of(args.getDestDir());
         createDirectories(destDir);
 
-        var projects = getProjects();
-        System.out.println("Checking out " + projects.size() + " projects...");
-        for (var project : projects) {
-            var repoDir = destDir.resolve(project.getName());
-            var branch = requireNonNullElse(args.getBranch(), project.getDefaultBranch());
+        progress.message("Checking out projects...");
+        forEachProject(project -> {
+            var repoDir = projectDir(destDir, project);
+            var branch = requireNonNullElse(args.getBranch(), project.defaultBranch());
 
-            var lastCommit = lastPushedCommitBefore(project, branch, deadline);
+            var lastCommit = lastPushedCommits(project,
+                    List.of(new PushQuery(branch, deadline)), searchStart).get(0);
             if (lastCommit == null) {
                 progress.advance("failed");
-                progress.interrupt();
-                System.out.printf("Skipping %s, no commits found before deadline.\n",
-                        project.getName());
-                continue;
+                progress.message("Skipping " + project.name() + ", no commits found before deadline.");
+                return;
             }
 
-            for (int attempts = ATTEMPTS; attempts-- > 0; ) {
-                Git git = null;
-                try {
-                    if (exists(repoDir)) {
-                        git = open(repoDir.toFile());
-                        if (git.getRepository().getBranch().equals(lastCommit)) {
-                            progress.advance("existing");
-                            break;
-                        }
-                        git.fetch()
-                                .setCredentialsProvider(credentials)
-                                .call();
-                    } else {
-                        git = cloneRepository()
-                                .setURI(project.getWebUrl())
-                                .setDirectory(repoDir.toFile())
-                                .setCredentialsProvider(credentials)
-                                .call();
-                        progress.additionalInfo("newly cloned");
+            var cloning = !exists(repoDir);
+            if (!cloning) {
+                try (var git = open(repoDir.toFile())) {
+                    if (git.getRepository().getBranch().equals(lastCommit)) {
+                        progress.advance("existing");
+                        return;
                     }
+                }
+            }
+            try (var git = traced(Kind.GIT_OPERATION, cloning ? "clone" : "fetch", () -> retry.call(project.name(),
+                    () -> fetchOrClone(project.webUrl(), repoDir, credentials)))) {
+                if (cloning) {
+                    progress.additionalInfo("newly cloned");
+                }
 
-                    // go to last commit before the deadline
+                // go to last commit before the deadline
+                try (var checkout = tracer.span(Kind.GIT_OPERATION, "checkout")) {
                     git.checkout()
                             .setName(lastCommit)
                             .call();
-
-                    progress.advance();
-                    break;
-                } catch (TransportException e) {
-                    progress.interrupt();
-                    e.printStackTrace(System.out);
-                    System.out.println("Transport exception for " + project.getName() +
-                                       "! Attempts left: " + attempts);
-                    if (attempts == 0) {
-                        throw e;
-                    }
-                } finally {
-                    if (git != null) {
-                        git.close();
-                    }
                 }
+
+                progress.advance();
             }
-        }
+        });
     }
 
     interface Args extends CmdForProjects.Args {
@@ -132,6 +124,27 @@ public class CheckoutWithDeadlineCmd extends CmdForProjects<CheckoutWithDeadline
         @Option(defaultToNull = true)
         String getDeadline();
 
+        /**
+         * If specified, push events before the given date/time are not
+         * considered when searching for the last commit before the deadline.
+         * This limits the number of events that need to be fetched for
+         * projects without any pushes to the branch; otherwise, their whole
+         * history is scanned. There is no default, because any fixed bound
+         * would miss submissions pushed only once, long before the deadline.
+         * Same format as the deadline.
+         */
+        @Option(defaultToNull = true)
+        String getSearchStart();
+
+        /**
+         * If set, the push events of each project are kept in a local index
+         * (in the cache directory), which is synced incrementally. Repeated
+         * runs (e.g., with different deadlines) then only need to fetch new
+         * events to determine the commit to check out.
+         */
+        @Option
+        boolean isIndexEvents();
+
         /**
          * The branch to use. If unspecified, the default branch of each project
          * is used.
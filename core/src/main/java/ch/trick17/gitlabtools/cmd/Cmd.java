@@ -0,0 +1,365 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.AsyncGitLab;
+import ch.trick17.gitlabtools.AsyncGitLab.UserInfo;
+import ch.trick17.gitlabtools.Cache.Key;
+import ch.trick17.gitlabtools.ProgressDashboard;
+import ch.trick17.gitlabtools.ProgressTracker;
+import ch.trick17.gitlabtools.PushEventIndex;
+import ch.trick17.gitlabtools.RetryPolicy;
+import ch.trick17.gitlabtools.Tracer;
+import ch.trick17.gitlabtools.Tracer.Kind;
+import org.gitlab4j.api.GitLabApi;
+import org.gitlab4j.api.GitLabApiException;
+import org.gitlab4j.api.models.Group;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.util.Collections.nCopies;
+import static java.util.Comparator.naturalOrder;
+
+public abstract class Cmd<A extends Args> {
+
+    public interface Constructor {
+        Cmd<?> construct(String[] args) throws IOException;
+    }
+
+    /**
+     * The maximum page size supported by the GitLab API. Using it for all
+     * paged requests minimizes the number of round trips for long lists.
+     */
+    protected static final int MAX_PER_PAGE = 100;
+
+    protected final A args;
+    protected final String token;
+    protected final GitLabApi gitlab;
+
+    private final CmdContext context;
+    private final boolean shared; // context is shared with other commands
+    private boolean background; // set for steps that run concurrently with others
+
+    protected ProgressTracker progress;
+
+    /**
+     * Shared by all operations of this command (and of the other steps of a
+     * pipeline), so that its circuit breaker pauses all of them when GitLab
+     * is unavailable.
+     */
+    protected final RetryPolicy retry;
+
+    protected final Tracer tracer;
+
+    /**
+     * If set (by subclasses), {@link #lastPushedCommits} answers queries
+     * using this local index instead of scanning the events API.
+     */
+    protected PushEventIndex eventIndex;
+
+    public Cmd(A args) throws IOException {
+        this.args = args;
+        var sharedContext = CmdContext.shared();
+        shared = sharedContext != null;
+        context = shared ? sharedContext : new CmdContext(args);
+        token = context.token;
+        gitlab = context.gitlab;
+        retry = context.retry;
+        tracer = context.tracer;
+    }
+
+    CmdContext context() {
+        return context;
+    }
+
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Returns the summary of the progress of this command, once it has been
+     * executed.
+     */
+    String resultSummary() {
+        return progress == null ? null : progress.summary();
+    }
+
+    /**
+     * Runs this command in the background, i.e., concurrently with other
+     * steps of a pipeline. Progress is not shown for such a command.
+     */
+    void runInBackground() {
+        background = true;
+    }
+
+    public void execute() throws Exception {
+        try (var span = tracer.span(Kind.COMMAND, getClass().getSimpleName(), null)) {
+            var tasks = taskCount();
+            int charsPerLine;
+            if (tasks < 60) {
+                charsPerLine = 10;
+            } else if (tasks < 150) {
+                charsPerLine = 20;
+            } else {
+                charsPerLine = 50;
+            }
+            if (background) {
+                progress = new ProgressTracker(System.out, charsPerLine) {
+                    public void message(String message) {
+                        context.message(message);
+                    }
+                };
+                progress.mute();
+            } else {
+                var dashboard = switch (args.getProgress()) {
+                    case "dashboard" -> true;
+                    case "compact" -> false;
+                    default -> ProgressDashboard.isSupported();
+                };
+                progress = dashboard
+                        ? new ProgressDashboard(System.out, tasks)
+                        : new ProgressTracker(System.out, charsPerLine);
+                context.setProgress(progress);
+            }
+            progress.usingChar("existing", '-').usingChar("failed", 'X');
+
+            executeTasks();
+        } finally {
+            if (progress != null) {
+                progress.close();
+            }
+            if (!background) {
+                context.setProgress(null);
+            }
+            if (!shared) {
+                context.close();
+            }
+        }
+
+        if (!background) {
+            // background steps are summarized by the pipeline
+            printSummary();
+        }
+        if (!shared) {
+            context.printOutputs();
+        }
+    }
+
+    protected abstract int taskCount() throws Exception;
+
+    protected abstract void executeTasks() throws Exception;
+
+    protected void printSummary() {
+        progress.printSummary();
+    }
+
+    /**
+     * Returns the directory in which data for the current GitLab instance
+     * is kept between runs. The directory is not created by this method.
+     */
+    protected Path cacheDir() {
+        var host = args.getGitLabUrl()
+                .replaceAll("^https?://", "")
+                .replaceAll("/$", "")
+                .replaceAll("[^A-Za-z0-9.-]", "_");
+        return Path.of(args.getCacheDir()).resolve(host);
+    }
+
+    /**
+     * Creates a non-blocking client for the API endpoints that are called for
+     * every project. It talks to the same server (or session recorder or
+     * replayer) as {@link #gitlab} and uses the same retry policy, and it
+     * keeps at most the given number of requests in flight.
+     */
+    protected AsyncGitLab asyncGitlab(int maxConcurrentRequests) {
+        return new AsyncGitLab(gitlab.getGitLabServerUrl(), token, MAX_PER_PAGE, retry, maxConcurrentRequests);
+    }
+
+    protected Group getGroup() throws GitLabApiException {
+        return getGroup(args.getGroup());
+    }
+
+    protected Group getGroup(String path) throws GitLabApiException {
+        return context.groups.update(new Key("groups", path),
+                () -> traced("get group", () -> retry.call("group " + path,
+                        () -> gitlab.getGroupApi().getGroup(path))));
+    }
+
+    protected List<UserInfo> getGroupMembers(String path) throws GitLabApiException {
+        return context.members.update(new Key("groups/members", path),
+                () -> traced("get group members", () -> await(context.async.getGroupMembers(path))));
+    }
+
+    protected List<UserInfo> getProjectMembers(ProjectInfo project) throws GitLabApiException {
+        return context.members.update(new Key("projects/members", project.id()),
+                () -> traced("get members", () -> await(context.async.getProjectMembers(project.id()))));
+    }
+
+    /**
+     * Waits for a request of the shared non-blocking client, which has
+     * already been retried if necessary.
+     */
+    private static <T> T await(CompletableFuture<T> request) throws GitLabApiException {
+        try {
+            return request.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof GitLabApiException api) {
+                throw api;
+            } else if (cause instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            } else if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the cached members of the given project, after they have been
+     * changed. Otherwise, later commands sharing the cache (in a pipeline or
+     * server) would see outdated members.
+     */
+    protected void invalidateProjectMembers(ProjectInfo project) {
+        context.members.invalidate(new Key("projects/members", project.id()));
+    }
+
+    protected String lastPushedCommitBefore(ProjectInfo project, String branch,
+                                            Instant deadline) throws GitLabApiException, IOException {
+        return lastPushedCommitBefore(project, branch, deadline, a -> true);
+    }
+
+    protected String lastPushedCommitBefore(ProjectInfo project, String branch, Instant deadline,
+                                            Predicate<String> author) throws GitLabApiException, IOException {
+        return lastPushedCommits(project, List.of(new PushQuery(branch, deadline, author)), null).get(0);
+    }
+
+    /**
+     * Starts a span for the processing of the given project. Spans started
+     * and progress reported within it (on the same thread) are attributed to
+     * the project, and the project is shown as in progress until the span is
+     * closed.
+     */
+    protected Tracer.Span projectSpan(ProjectInfo project) {
+        var span = tracer.span(Kind.PROJECT, project.name(), project.name());
+        progress.started(project.name());
+        progress.setProject(project.group(), project.name());
+        return () -> {
+            progress.setProject(null, null);
+            progress.finished(project.name());
+            span.close();
+        };
+    }
+
+    /**
+     * Executes the given GitLab API call within a span with the given name.
+     */
+    protected <T, E extends Exception> T traced(String name, RetryPolicy.Action<T, E> action) throws E {
+        return traced(Kind.API_CALL, name, action);
+    }
+
+    /**
+     * Executes the given action within a span of the given kind and name,
+     * recording the outcome and, for collections, the number of items.
+     */
+    protected <T, E extends Exception> T traced(Kind kind, String name,
+                                                RetryPolicy.Action<T, E> action) throws E {
+        try (var span = tracer.span(kind, name)) {
+            try {
+                var result = action.run();
+                if (result instanceof Collection<?> c) {
+                    span.setItems(c.size());
+                }
+                span.setOutcome("success");
+                return result;
+            } catch (Exception e) {
+                span.setOutcome(e instanceof GitLabApiException api && api.getHttpStatus() != 0
+                        ? "HTTP " + api.getHttpStatus()
+                        : e.getClass().getSimpleName());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Answers several "last pushed commit" queries for the given project with
+     * a single scan over its push events, from the newest backwards. The scan
+     * starts at the latest cutoff of all queries and stops as soon as all
+     * queries are answered or, if <code>notBefore</code> is given, when
+     * events before that instant are reached. Returns the commits in the
+     * order of the queries; unanswered queries yield <code>null</code>.
+     * <p>
+     * Without <code>notBefore</code>, a query that matches no push at all
+     * is only answered (with <code>null</code>) at the end of the project's
+     * history. No lower bound is derived automatically: the last push before
+     * a deadline may be arbitrarily old (e.g., a submission pushed once,
+     * weeks earlier), and any fixed window would silently turn such a push
+     * into "no commit". The project's creation would be a safe bound, but
+     * the history ends there anyway. Callers bound the scan with an explicit
+     * start (<code>--searchStart</code>) or avoid it on repeated runs with
+     * the {@link #eventIndex}.
+     */
+    protected List<String> lastPushedCommits(ProjectInfo project, List<PushQuery> queries,
+                                             Instant notBefore) throws GitLabApiException, IOException {
+        if (eventIndex != null) {
+            var results = new ArrayList<String>();
+            for (var query : queries) {
+                results.add(eventIndex.lastPushedCommit(project.id(), query.branch(),
+                        query.cutoff(), query.author(), notBefore));
+            }
+            return results;
+        }
+
+        var latest = queries.stream()
+                .map(PushQuery::cutoff)
+                .max(naturalOrder()).orElseThrow();
+        // fetch push-events on the day of the latest cutoff and earlier
+        // (actually, add 1 day since GitLab ignores time of day)
+        var after = notBefore == null ? null : Date.from(notBefore.minus(1, DAYS));
+        var before = Date.from(latest.plus(1, DAYS));
+
+        var results = new ArrayList<String>(nCopies(queries.size(), null));
+        var open = new int[] {queries.size()};
+        // events are decoded while they arrive, so no more are fetched (and
+        // kept in memory) than necessary
+        traced("get events", () -> await(context.async.forEachPushEvent(project.id(), before, after, event -> {
+            var created = event.createdAt();
+            if (notBefore != null && created.isBefore(notBefore)) {
+                return false;
+            }
+            for (int i = 0; i < queries.size(); i++) {
+                var query = queries.get(i);
+                // filter precisely here:
+                if (results.get(i) == null
+                        && !created.isAfter(query.cutoff())
+                        && query.author().test(event.authorUsername())
+                        && query.branch().equals(event.ref())
+                        && event.commitTo() != null) {
+                    results.set(i, event.commitTo());
+                    open[0]--;
+                }
+            }
+            return open[0] > 0;
+        })));
+        return results;
+    }
+
+    /**
+     * A query for the last commit pushed to the given branch before the given
+     * cutoff by an author (username) matching the given predicate.
+     */
+    protected record PushQuery(String branch, Instant cutoff, Predicate<String> author) {
+        public PushQuery(String branch, Instant cutoff) {
+            this(branch, cutoff, a -> true);
+        }
+    }
+}
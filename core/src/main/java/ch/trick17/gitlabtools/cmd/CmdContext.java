@@ -0,0 +1,186 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.AsyncGitLab;
+import ch.trick17.gitlabtools.AsyncGitLab.UserInfo;
+import ch.trick17.gitlabtools.Cache;
+import ch.trick17.gitlabtools.ProgressTracker;
+import ch.trick17.gitlabtools.RetryPolicy;
+import ch.trick17.gitlabtools.SessionRecorder;
+import ch.trick17.gitlabtools.SessionReplayer;
+import ch.trick17.gitlabtools.Tracer;
+import ch.trick17.gitlabtools.auth.TokenPrompt;
+import ch.trick17.gitlabtools.jfr.FlightRecording;
+import org.gitlab4j.api.GitLabApi;
+import org.gitlab4j.api.models.Group;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static ch.trick17.gitlabtools.cmd.Cmd.MAX_PER_PAGE;
+import static java.nio.file.Files.readAllLines;
+
+/**
+ * The state that commands use to talk to GitLab: the API client and its
+ * token, the retry policy, the tracer, the session recorder or replayer (if
+ * any), and the caches for repeated lookups. Normally, each command creates
+ * its own context, but the steps of a {@link PipelineCmd} are constructed
+ * {@linkplain #construct within} a shared one, so that they reuse the
+ * client, caches and circuit breaker of earlier steps.
+ */
+class CmdContext implements AutoCloseable {
+
+    private static final ThreadLocal<CmdContext> shared = new ThreadLocal<>();
+    private static final int MAX_CONCURRENT_REQUESTS = 32;
+
+    private final Args args;
+    final String token;
+    final GitLabApi gitlab;
+
+    /**
+     * Shared by all operations, so that its circuit breaker pauses all of
+     * them when GitLab is unavailable.
+     */
+    final RetryPolicy retry;
+    final Tracer tracer;
+
+    /**
+     * For lists that are decoded while being received. The callers wait for
+     * the results, so the number of requests in flight is mostly limited by
+     * their threads already.
+     */
+    final AsyncGitLab async;
+
+    // caches for repeated lookups; groups, members and projects may change
+    // while commands run (or while 'serve' is running), so they expire after
+    // a while
+    final Cache<Group> groups = new Cache<>(100, Duration.ofMinutes(30));
+    final Cache<List<UserInfo>> members = new Cache<>(1000, Duration.ofMinutes(5));
+    final Cache<List<ProjectInfo>> projects = new Cache<>(100, Duration.ofMinutes(5));
+
+    private final AutoCloseable session; // recorder or replayer, if any
+    private final FlightRecording recording;
+
+    /**
+     * The progress tracker of the command that is currently running in the
+     * foreground, if any. Messages are printed through it, so they do not
+     * disturb the progress output.
+     */
+    private volatile ProgressTracker progress;
+
+    CmdContext(Args args) throws IOException {
+        this.args = args;
+        String apiUrl;
+        if (args.getReplay() != null) {
+            var replayer = new SessionReplayer(Path.of(args.getReplay()), args.getReplayTimeScale());
+            session = replayer;
+            apiUrl = replayer.url();
+            token = "replay";
+        } else {
+            var tokenFile = Path.of(args.getTokenFile());
+            if (Files.notExists(tokenFile)) {
+                // separate class, so token creation (and HtmlUnit) is only loaded if needed
+                TokenPrompt.promptCreateToken(args.getGitLabUrl(), tokenFile);
+            }
+            token = readAllLines(tokenFile).get(0);
+            if (args.getRecord() != null) {
+                var recorder = new SessionRecorder(args.getGitLabUrl(), Path.of(args.getRecord()));
+                session = recorder;
+                apiUrl = recorder.url();
+            } else {
+                session = null;
+                apiUrl = args.getGitLabUrl();
+            }
+        }
+        gitlab = new GitLabApi(apiUrl, token);
+        gitlab.setDefaultPerPage(MAX_PER_PAGE);
+        tracer = new Tracer(args.getTraceOut() != null);
+        retry = new RetryPolicy(args.getRetries(), Duration.ofMillis(args.getRetryDelay()),
+                Duration.ofSeconds(30), new RetryListener());
+        async = new AsyncGitLab(apiUrl, token, MAX_PER_PAGE, retry, MAX_CONCURRENT_REQUESTS);
+        recording = args.getJfrOut() != null
+                ? new FlightRecording(Path.of(args.getJfrOut()))
+                : null;
+    }
+
+    /**
+     * Returns the shared context in which commands are currently being
+     * constructed on this thread, or <code>null</code>.
+     */
+    static CmdContext shared() {
+        return shared.get();
+    }
+
+    /**
+     * Constructs a command with the given constructor, such that it uses
+     * this context instead of creating its own.
+     */
+    Cmd<?> construct(Cmd.Constructor constructor, String[] args) throws IOException {
+        shared.set(this);
+        try {
+            return constructor.construct(args);
+        } finally {
+            shared.remove();
+        }
+    }
+
+    void setProgress(ProgressTracker progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Prints the given message, through the progress tracker of the current
+     * foreground command, if any.
+     */
+    void message(String message) {
+        var progress = this.progress;
+        if (progress != null) {
+            progress.message(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    private class RetryListener implements RetryPolicy.Listener {
+        public void retrying(String description, Exception e, int attemptsLeft, Duration delay) {
+            message("Problem with " + description + " (" + e.getMessage() + ")! " +
+                    "Attempts left: " + attemptsLeft);
+        }
+
+        public void circuitOpened(Duration pause) {
+            message("GitLab seems to be unavailable, pausing for " +
+                    pause.toSeconds() + " seconds...");
+        }
+    }
+
+    /**
+     * Closes the session recorder or replayer and writes the trace and
+     * flight recording, if any.
+     */
+    @Override
+    public void close() throws Exception {
+        if (session != null) {
+            session.close();
+        }
+        if (tracer.isEnabled()) {
+            tracer.write(Path.of(args.getTraceOut()));
+        }
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    /**
+     * Prints where the trace and flight recording have been written to.
+     */
+    void printOutputs() {
+        if (tracer.isEnabled()) {
+            System.out.println("Trace written to " + args.getTraceOut());
+        }
+        if (recording != null) {
+            System.out.println("Flight recording written to " + args.getJfrOut());
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.Cache.Key;
+import ch.trick17.gitlabtools.ProjectRoster;
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import com.lexicalscope.jewel.cli.Option;
+import org.gitlab4j.api.GitLabApiException;
+import org.gitlab4j.api.Pager;
+import org.gitlab4j.api.models.Group;
+import org.gitlab4j.api.models.GroupFilter;
+import org.gitlab4j.api.models.GroupProjectsFilter;
+import org.gitlab4j.api.models.Project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static ch.trick17.gitlabtools.CourseFileReader.readSimpleCourseFile;
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.floorMod;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyIterator;
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+
+public abstract class CmdForProjects<A extends CmdForProjects.Args> extends Cmd<A> {
+
+    private List<String> groups;
+    private List<ProjectInfo> projects;
+    private final Map<String, Pager<Project>> pagers = new HashMap<>();
+    private Predicate<ProjectInfo> filter;
+    private final int shard;
+    private final int shardCount;
+
+    public CmdForProjects(A args) throws IOException {
+        super(args);
+        if (args.getShard() == null) {
+            shard = 0;
+            shardCount = 1;
+        } else {
+            var parts = args.getShard().split("/");
+            shard = parseInt(parts[0]) - 1;
+            shardCount = parseInt(parts[1]);
+            if (shard < 0 || shard >= shardCount) {
+                throw new ArgumentValidationException("Invalid shard: " + args.getShard());
+            }
+        }
+    }
+
+    /**
+     * Executes this command and, if requested, writes its results to the
+     * {@link Args#getResultOut()} file.
+     */
+    @Override
+    public void execute() throws Exception {
+        super.execute();
+        if (args.getResultOut() != null) {
+            results().write(Path.of(args.getResultOut()));
+            System.out.println("Results written to " + args.getResultOut());
+        }
+    }
+
+    /**
+     * Returns the results of this command, once it has been executed.
+     * Subclasses may add further data.
+     */
+    ResultFile results() {
+        return new ResultFile(getClass().getSimpleName(), args.getGroup(),
+                args.getShard(), progress.results(), null);
+    }
+
+    /**
+     * Returns the full paths of the groups given by the <code>--group</code>
+     * option, with group patterns (see {@link Args#getGroup()}) resolved to
+     * the matching groups.
+     */
+    protected final List<String> groups() throws GitLabApiException {
+        if (groups == null) {
+            var result = new LinkedHashSet<String>();
+            for (var spec : args.getGroup().split(",")) {
+                spec = spec.strip().replaceAll("/$", "");
+                if (!spec.contains("*")) {
+                    result.add(spec);
+                    continue;
+                }
+                var segments = spec.split("/");
+                var fixed = 0;
+                while (!segments[fixed].contains("*")) {
+                    fixed++;
+                }
+                if (fixed == 0) {
+                    throw new ArgumentValidationException("Group pattern must start with a group: " + spec);
+                }
+                var parent = String.join("/", asList(segments).subList(0, fixed));
+                var pattern = globPattern(spec);
+                if (pattern.matcher(parent).matches()) {
+                    result.add(parent);
+                }
+                traced("get descendant groups", () -> retry.call("subgroups of " + parent, () ->
+                        gitlab.getGroupApi().getDescendantGroups(parent, new GroupFilter(), MAX_PER_PAGE).all())).stream()
+                        .map(Group::getFullPath)
+                        .filter(path -> pattern.matcher(path).matches())
+                        .sorted()
+                        .forEach(result::add);
+            }
+            if (result.isEmpty()) {
+                throw new ArgumentValidationException("No groups match " + args.getGroup());
+            }
+            groups = List.copyOf(result);
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the usernames of the members of all groups.
+     */
+    protected final Set<String> getGroupMemberNames() throws GitLabApiException {
+        var names = new HashSet<String>();
+        for (var group : groups()) {
+            getGroupMembers(group).forEach(m -> names.add(m.username()));
+        }
+        return names;
+    }
+
+    private static Pattern globPattern(String glob) {
+        var subgroups = glob.endsWith("/**");
+        if (subgroups) {
+            glob = glob.substring(0, glob.length() - 3);
+        }
+        var parts = glob.split("\\*", -1);
+        var regex = new StringBuilder(Pattern.quote(parts[0]));
+        for (int i = 1; i < parts.length; i++) {
+            regex.append("[^/]*").append(Pattern.quote(parts[i]));
+        }
+        if (subgroups) {
+            regex.append("(/.*)?");
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Returns all projects (of all groups), sorted by group and name. This
+     * requires fetching all projects before the first one can be processed;
+     * use {@link #iterateProjects()} where possible.
+     */
+    protected final List<ProjectInfo> getProjects() throws GitLabApiException, IOException {
+        if (projects == null) {
+            var all = new ArrayList<ProjectInfo>();
+            for (var group : groups()) {
+                // unfiltered list is cached, so other steps of a pipeline can reuse it
+                var key = new Key("groups/projects", group + "?search=" + args.getSearch());
+                all.addAll(context().projects.update(key, () -> traced("get projects", () ->
+                        args.isProjectRoster() ? syncRoster(group) : retry.call("projects of " + group,
+                                () -> gitlab.getGroupApi().getProjects(group, projectsFilter(), MAX_PER_PAGE).all()).stream()
+                                .map(p -> ProjectInfo.of(p, group))
+                                .collect(toList()))));
+            }
+            projects = all.stream()
+                    .filter(filter())
+                    .sorted(comparing(ProjectInfo::group).thenComparing(ProjectInfo::name))
+                    .collect(toList());
+        }
+        return projects;
+    }
+
+    private List<ProjectInfo> syncRoster(String group) throws GitLabApiException {
+        var roster = new ProjectRoster(gitlab, cacheDir().resolve("projects"), MAX_PER_PAGE, retry);
+        try {
+            return roster.sync(group, args.getSearch()).stream()
+                    .map(p -> ProjectInfo.of(p, group))
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the projects to process, group by group. Unless the
+     * {@link Args#isSorted()} option is set, the projects are returned in the
+     * order in which GitLab returns them and pages are fetched lazily, so
+     * that processing can start as soon as the first page has arrived. The
+     * returned iterable can only be iterated once. Within a pipeline, or with
+     * {@link Args#isProjectRoster()}, all projects are fetched first (or taken
+     * from a previous step or the roster), like with {@link #getProjects()}.
+     */
+    protected final Iterable<ProjectInfo> iterateProjects() throws GitLabApiException, IOException {
+        if (fetchAll()) {
+            return getProjects();
+        }
+        var groups = groups();
+        var pagers = new ArrayList<Pager<Project>>();
+        for (var group : groups) {
+            pagers.add(pager(group));
+        }
+        this.pagers.clear(); // consumed
+        var filter = filter();
+        return () -> new Iterator<>() {
+            int group = -1;
+            Pager<Project> pages;
+            Iterator<Project> page = emptyIterator();
+            ProjectInfo next;
+
+            public boolean hasNext() {
+                while (next == null) {
+                    if (page.hasNext()) {
+                        var p = ProjectInfo.of(page.next(), groups.get(group));
+                        if (filter.test(p)) {
+                            next = p;
+                        }
+                    } else if (pages != null && pages.hasNext()) {
+                        page = traced("get projects", () ->
+                                retry.call("projects of " + groups.get(group), pages::next)).iterator();
+                    } else if (group + 1 < groups.size()) {
+                        pages = pagers.get(++group);
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            public ProjectInfo next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Processes each project with the given action, within a
+     * {@linkplain #projectSpan(ProjectInfo) project span}. Up to
+     * {@link Args#getConcurrency()} projects are processed at the same time,
+     * across all groups, so the projects of several groups are not processed
+     * one group after the other, but as one batch with a common limit. The
+     * action must be thread-safe if the concurrency is greater than 1. If the
+     * action throws an exception, no further projects are started and the
+     * exception is rethrown once the running ones have finished.
+     */
+    protected final void forEachProject(ProjectAction action) throws Exception {
+        var concurrency = args.getConcurrency();
+        if (concurrency <= 1) {
+            for (var project : iterateProjects()) {
+                try (var span = projectSpan(project)) {
+                    action.process(project);
+                }
+            }
+            return;
+        }
+
+        var executor = newFixedThreadPool(concurrency);
+        // projects are only fetched as fast as they can be processed
+        var available = new Semaphore(concurrency);
+        var failure = new AtomicReference<Throwable>();
+        try {
+            for (var project : iterateProjects()) {
+                available.acquire();
+                if (failure.get() != null) {
+                    break;
+                }
+                executor.execute(() -> {
+                    try (var span = projectSpan(project)) {
+                        action.process(project);
+                    } catch (Throwable e) {
+                        // also errors, so the outcome does not depend on the concurrency
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        available.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, NANOSECONDS);
+        }
+        if (failure.get() instanceof Error e) {
+            throw e;
+        } else if (failure.get() != null) {
+            throw (Exception) failure.get();
+        }
+    }
+
+    /**
+     * Returns the directory within the given base directory in which data
+     * for the given project (e.g., its repository) should be stored. For a
+     * single group, this is simply a directory named after the project.
+     * For several groups, projects are put into a directory per group, named
+     * after the group's path relative to the common parent of all groups,
+     * since projects of different groups may have the same name.
+     */
+    protected final Path projectDir(Path base, ProjectInfo project) throws GitLabApiException {
+        var groups = groups();
+        if (groups.size() == 1) {
+            return base.resolve(project.name());
+        }
+        var parent = Path.of(groups.get(0)).getParent();
+        for (var group : groups) {
+            while (parent != null && !Path.of(group).startsWith(parent)) {
+                parent = parent.getParent();
+            }
+        }
+        var group = Path.of(project.group());
+        var relative = parent == null ? group : parent.relativize(group);
+        return base.resolve(relative.toString()).resolve(project.name());
+    }
+
+    /**
+     * Whether all projects are fetched (or taken from the roster or a
+     * previous step) before processing starts.
+     */
+    private boolean fetchAll() {
+        return projects != null || args.isSorted() || args.isProjectRoster() || isShared();
+    }
+
+    private Pager<Project> pager(String group) throws GitLabApiException {
+        var pager = pagers.get(group);
+        if (pager == null) {
+            pager = traced("get projects", () -> retry.call("projects of " + group, () ->
+                    gitlab.getGroupApi().getProjects(group, projectsFilter(), MAX_PER_PAGE)));
+            pagers.put(group, pager);
+        }
+        return pager;
+    }
+
+    /**
+     * Requests the "simple" view of the projects, which contains much less
+     * data, and narrows the results down on the server, if possible.
+     */
+    private GroupProjectsFilter projectsFilter() {
+        return new GroupProjectsFilter()
+                .withSimple(true)
+                .withSearch(args.getSearch());
+    }
+
+    private Predicate<ProjectInfo> filter() throws IOException {
+        if (filter == null) {
+            if (args.getCourseFile() == null) {
+                filter = p -> true;
+            } else {
+                var names = Set.copyOf(readSimpleCourseFile(Path.of(args.getCourseFile())));
+                filter = args.isWithProjectNamePrefix()
+                        ? p -> names.contains(p.name().split("_", 2)[1])
+                        : p -> names.contains(p.name());
+            }
+            if (shardCount > 1) {
+                filter = filter.and(p -> shardOf(p.id(), shardCount) == shard);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Returns the shard (starting at 0) to which the project with the given
+     * ID belongs. This only depends on the ID, so all shards agree on it,
+     * no matter in which order they receive the projects. The ID is mixed
+     * first, since IDs of projects created together are often consecutive.
+     */
+    static int shardOf(long projectId, int shardCount) {
+        return floorMod(Long.hashCode(projectId * 0x9E3779B97F4A7C15L), shardCount);
+    }
+
+    /**
+     * Returns the number of projects to process. If the projects have not
+     * been fetched completely, this is an estimate based on the total number
+     * of projects in the groups (and the size of the course file and the
+     * number of shards, if any).
+     */
+    @Override
+    protected int taskCount() throws Exception {
+        if (fetchAll()) {
+            return getProjects().size();
+        }
+        var total = 0L;
+        for (var group : groups()) {
+            var groupTotal = pager(group).getTotalItems();
+            if (groupTotal < 0) {
+                total = Integer.MAX_VALUE; // unknown, GitLab omits the total for large groups
+                break;
+            }
+            total += groupTotal;
+        }
+        if (args.getCourseFile() != null) {
+            total = Math.min(total, readSimpleCourseFile(Path.of(args.getCourseFile())).size());
+        }
+        if (total < Integer.MAX_VALUE) {
+            total = (total + shardCount - 1) / shardCount;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Processes a single project, see {@link #forEachProject(ProjectAction)}.
+     */
+    protected interface ProjectAction {
+        void process(ProjectInfo project) throws Exception;
+    }
+
+    interface Args extends ch.trick17.gitlabtools.cmd.Args {
+
+        /**
+         * When specified, the command will be applied only to the
+         * projects belonging to the students in the file. Note that
+         * if the projects have been created with a project name prefix,
+         * the {@link #isWithProjectNamePrefix()} option is required
+         * for this to work. This filtering does not work for team
+         * projects.
+         */
+        @Option(defaultToNull = true)
+        String getCourseFile();
+
+        /**
+         * When {@link #getCourseFile()} is specified, this option is
+         * required in case the projects have been created with a prefix.
+         * Subclasses of {@link CmdForProjects} may use this option for
+         * other purposes (see, e.g., {@link AssignMembersCmd}).
+         */
+        @Option
+        boolean isWithProjectNamePrefix();
+
+        /**
+         * By default, projects are processed as soon as they are fetched
+         * from GitLab, in the order in which GitLab returns them. If this
+         * option is set, all projects are fetched first and processed in
+         * the order of their names.
+         */
+        @Option
+        boolean isSorted();
+
+        /**
+         * When specified, the command will be applied only to the projects
+         * whose name contains the given text, e.g., a common prefix. This
+         * filtering is done by GitLab, so it reduces the number of projects
+         * that need to be fetched.
+         */
+        @Option(defaultToNull = true)
+        String getSearch();
+
+        /**
+         * The maximum number of projects that are processed at the same
+         * time. The limit applies to all groups together. The
+         * <code>extract-from-merge-requests</code> command has its own
+         * <code>--threads</code> option instead and ignores this one.
+         */
+        @Option(defaultValue = "1")
+        int getConcurrency();
+
+        /**
+         * Processes only one part of the projects, given as "i/n", e.g.,
+         * "2/4" for the second of four parts. The projects are assigned to
+         * the parts based on their ID, so running the command with each part
+         * (e.g., on different machines) processes each project exactly once.
+         * Use {@link #getResultOut()} and the <code>merge-results</code>
+         * command to combine the results.
+         */
+        @Option(defaultToNull = true, pattern = "\\d+/\\d+")
+        String getShard();
+
+        /**
+         * Writes the results of the command, i.e., the outcome for each
+         * project and the extracted data (if any), into the given JSON file,
+         * to be combined with the results of other shards using the
+         * <code>merge-results</code> command.
+         */
+        @Option(defaultToNull = true)
+        String getResultOut();
+
+        /**
+         * If set, the projects of each group are kept in a local snapshot (in
+         * the cache directory) and only projects with activity since the last
+         * run are fetched, which usually takes a single request. The snapshot
+         * is rebuilt automatically if the number of projects in the group no
+         * longer matches. Renamed projects are only picked up by a rebuild,
+         * which can be forced by deleting the snapshot.
+         */
+        @Option
+        boolean isProjectRoster();
+    }
+}
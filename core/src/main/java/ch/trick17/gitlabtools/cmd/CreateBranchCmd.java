@@ -16,18 +16,24 @@ public class CreateBranchCmd extends CmdForProjects<CreateBranchCmd.Args> {
     @Override
     protected void executeTasks() throws Exception {
         var repoApi = gitlab.getRepositoryApi();
-        for (var project : getProjects()) {
-            if (repoApi.getOptionalBranch(project, args.getBranch()).isPresent()) {
+        forEachProject(project -> {
+            if (traced("get branch", () -> retry.callOptional(project.name(), () ->
+                    repoApi.getOptionalBranch(project.id(), args.getBranch()))).isPresent()) {
                 progress.advance("existing");
-                continue;
+                return;
             }
 
-            repoApi.createBranch(project, args.getBranch(), args.getRef());
+            traced("create branch", () -> retry.callCreate(project.name(),
+                    () -> repoApi.createBranch(project.id(), args.getBranch(), args.getRef()),
+                    () -> repoApi.getOptionalBranch(project.id(), args.getBranch())));
 
             var access = AccessLevel.valueOf(args.getBranchAccess().toUpperCase());
-            gitlab.getProtectedBranchesApi().protectBranch(project, args.getBranch(), access, access);
+            var branchApi = gitlab.getProtectedBranchesApi();
+            traced("protect branch", () -> retry.callCreate(project.name(),
+                    () -> branchApi.protectBranch(project.id(), args.getBranch(), access, access),
+                    () -> branchApi.getOptionalProtectedBranch(project.id(), args.getBranch())));
             progress.advance();
-        }
+        });
     }
 
     public interface Args extends CmdForProjects.Args {
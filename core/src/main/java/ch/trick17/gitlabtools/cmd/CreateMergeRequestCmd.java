@@ -1,11 +1,12 @@
 package ch.trick17.gitlabtools.cmd;
 
+import ch.trick17.gitlabtools.PushEventIndex;
 import com.lexicalscope.jewel.cli.ArgumentValidationException;
 import com.lexicalscope.jewel.cli.Option;
+import org.gitlab4j.api.Constants.MergeRequestState;
 import org.gitlab4j.api.GitLabApiException;
 import org.gitlab4j.api.models.AccessLevel;
-import org.gitlab4j.api.models.Member;
-import org.gitlab4j.api.models.Project;
+import org.gitlab4j.api.models.MergeRequestFilter;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -19,9 +20,10 @@ import static java.time.LocalDate.now;
 import static java.time.LocalDateTime.parse;
 import static java.time.ZoneId.systemDefault;
 import static java.time.format.DateTimeFormatter.ofPattern;
+import static java.util.Collections.synchronizedList;
 import static java.util.Locale.GERMAN;
 import static java.util.Objects.requireNonNullElse;
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Creates a merge request for each project in the given group, to be used for
@@ -32,7 +34,8 @@ public class CreateMergeRequestCmd extends CmdForProjects<CreateMergeRequestCmd.
 
     private final Instant deadline;
     private final Instant releaseDateTime;
-    private final List<String> projectsWithNoCommits = new ArrayList<>();
+    private final Instant searchStart;
+    private final List<String> projectsWithNoCommits = synchronizedList(new ArrayList<>());
 
     public CreateMergeRequestCmd(String[] rawArgs) throws IOException {
         super(createCli(Args.class).parseArguments(rawArgs));
@@ -64,55 +67,83 @@ public class CreateMergeRequestCmd extends CmdForProjects<CreateMergeRequestCmd.
         } catch (DateTimeParseException e) {
             throw new ArgumentValidationException("Invalid release date/time: " + e.getParsedString(), e);
         }
+
+        try {
+            searchStart = args.getSearchStart() == null
+                    ? null
+                    : parse(args.getSearchStart()).atZone(systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new ArgumentValidationException("Invalid search start: " + e.getParsedString(), e);
+        }
     }
 
     @Override
     protected void executeTasks() throws Exception {
+        if (args.isIndexEvents()) {
+            eventIndex = new PushEventIndex(gitlab.getEventsApi(),
+                    cacheDir().resolve("push-events"), MAX_PER_PAGE, retry);
+        }
+
         var sourceBranch = requireNonNullElse(args.getBranchName(), "review-" + now());
         var targetBranch = sourceBranch + "-base";
 
         var title = requireNonNullElse(args.getTitle(),
                 "Code-Review für die Abgabe vom " + now().format(ofPattern("dd. MMMM uuuu", GERMAN)));
 
-        var instructors = gitlab.getGroupApi().getMembers(getGroup()).stream()
-                .map(Member::getUsername)
-                .collect(toSet());
+        var instructors = getGroupMemberNames();
 
-        for (var project : getProjects()) {
-            if (gitlab.getRepositoryApi().getOptionalBranch(project, targetBranch).isPresent()) {
+        forEachProject(project -> {
+            if (traced("get branch", () -> retry.callOptional(project.name(), () -> gitlab.getRepositoryApi()
+                    .getOptionalBranch(project.id(), targetBranch))).isPresent()) {
                 progress.advance("existing");
-                continue;
+                return;
             }
 
-            var sourceCommit = lastPushedCommitBefore(project, project.getDefaultBranch(), deadline);
-            var targetCommit = lastPushedCommitBefore(project, project.getDefaultBranch(),
-                    releaseDateTime, e -> instructors.contains(e.getAuthorUsername()));
+            // resolve both commits with a single scan over the push events
+            var commits = lastPushedCommits(project, List.of(
+                    new PushQuery(project.defaultBranch(), deadline),
+                    new PushQuery(project.defaultBranch(), releaseDateTime, instructors::contains)),
+                    searchStart);
+            var sourceCommit = commits.get(0);
+            var targetCommit = commits.get(1);
             if (sourceCommit == null || targetCommit == null) {
                 progress.advance("failed");
-                progress.interrupt();
-                System.out.println("Source or target commit not found for project " + project.getName());
-                continue;
+                progress.message("Source or target commit not found for project " + project.name());
+                return;
             }
             if (sourceCommit.equals(targetCommit)) {
                 progress.advance("failed");
-                projectsWithNoCommits.add(project.getName());
-                continue;
+                projectsWithNoCommits.add(project.name());
+                return;
             }
 
             createProtectedBranch(project, sourceBranch, sourceCommit);
             createProtectedBranch(project, targetBranch, targetCommit);
 
-            gitlab.getMergeRequestApi().createMergeRequest(project,
-                    sourceBranch, targetBranch, title, args.getDescription(), null);
+            var mergeRequestApi = gitlab.getMergeRequestApi();
+            var filter = new MergeRequestFilter()
+                    .withProjectId(project.id())
+                    .withSourceBranch(sourceBranch)
+                    .withTargetBranch(targetBranch)
+                    .withState(MergeRequestState.OPENED);
+            traced("create merge request", () -> retry.callCreate(project.name(),
+                    () -> mergeRequestApi.createMergeRequest(project.id(), sourceBranch, targetBranch,
+                            title, args.getDescription(), null),
+                    () -> mergeRequestApi.getMergeRequests(filter).stream().findFirst()));
 
             progress.advance();
-        }
+        });
     }
 
-    private void createProtectedBranch(Project project, String name, String ref) throws GitLabApiException {
-        gitlab.getRepositoryApi().createBranch(project, name, ref);
-        gitlab.getProtectedBranchesApi().protectBranch(project, name,
-                AccessLevel.MAINTAINER, AccessLevel.MAINTAINER);
+    private void createProtectedBranch(ProjectInfo project, String name, String ref) throws GitLabApiException {
+        var repoApi = gitlab.getRepositoryApi();
+        traced("create branch", () -> retry.callCreate(project.name(),
+                () -> repoApi.createBranch(project.id(), name, ref),
+                () -> repoApi.getOptionalBranch(project.id(), name)));
+        var branchApi = gitlab.getProtectedBranchesApi();
+        traced("protect branch", () -> retry.callCreate(project.name(),
+                () -> branchApi.protectBranch(project.id(), name, AccessLevel.MAINTAINER, AccessLevel.MAINTAINER),
+                () -> branchApi.getOptionalProtectedBranch(project.id(), name)));
     }
 
     @Override
@@ -120,7 +151,7 @@ public class CreateMergeRequestCmd extends CmdForProjects<CreateMergeRequestCmd.
         super.printSummary();
         if (!projectsWithNoCommits.isEmpty()) {
             System.out.println("\nProjects without commits:");
-            for (var project : projectsWithNoCommits) {
+            for (var project : projectsWithNoCommits.stream().sorted().collect(toList())) {
                 System.out.println("    " + project);
             }
         }
@@ -165,6 +196,28 @@ public class CreateMergeRequestCmd extends CmdForProjects<CreateMergeRequestCmd.
         @Option(defaultToNull = true)
         String getReleaseDateTime();
 
+        /**
+         * If specified, push events before the given date/time are not
+         * considered when searching for the source and target commits. This
+         * limits the number of events that need to be fetched, e.g., for
+         * projects without any matching pushes; otherwise, their whole
+         * history is scanned. There is no default, because any fixed bound
+         * would miss commits pushed only once, long before the deadline. It
+         * is interpreted as local time and must be specified in ISO-8601
+         * format.
+         */
+        @Option(defaultToNull = true)
+        String getSearchStart();
+
+        /**
+         * If set, the push events of each project are kept in a local index
+         * (in the cache directory), which is synced incrementally. Repeated
+         * runs (e.g., with different deadlines) then only need to fetch new
+         * events to determine the source and target commits.
+         */
+        @Option
+        boolean isIndexEvents();
+
         @Option(defaultToNull = true)
         String getTitle();
 
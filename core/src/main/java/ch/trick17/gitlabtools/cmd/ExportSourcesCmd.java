@@ -1,9 +1,9 @@
 package ch.trick17.gitlabtools.cmd;
 
+import ch.trick17.gitlabtools.Tracer.Kind;
 import com.lexicalscope.jewel.cli.Option;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
@@ -29,6 +29,12 @@ public class ExportSourcesCmd extends CmdForProjects<ExportSourcesCmd.Args> {
         super(createCli(Args.class).parseArguments(rawArgs));
     }
 
+    @Override
+    protected int taskCount() throws Exception {
+        // all projects are needed up front anyway, to assign new names
+        return getProjects().size();
+    }
+
     @Override
     protected void executeTasks() throws Exception {
         credentials = new UsernamePasswordCredentialsProvider("", token);
@@ -42,49 +48,42 @@ public class ExportSourcesCmd extends CmdForProjects<ExportSourcesCmd.Args> {
         shuffle(numbers);
         var newNames = numbers.iterator();
 
-        System.out.println("Exporting sources of " + projects.size() + " repositories...");
-        for (var project : projects) {
-            var repoDir = destDir.resolve(project.getName());
-
-            checkout(project.getWebUrl(), repoDir);
-            deleteRecursive(repoDir.resolve(".git"));
-            removeNonSubmissions(repoDir);
-            removeNonSources(repoDir);
-            removeEmptyDirs(repoDir);
+        progress.message("Exporting sources of " + projects.size() + " repositories...");
+        forEachProject(project -> {
+            var repoDir = projectDir(destDir, project);
 
-            move(repoDir, destDir.resolve(newNames.next()));
+            try (var checkout = tracer.span(Kind.GIT_OPERATION, "checkout")) {
+                retry.run(project.name(), () -> checkout(project.webUrl(), repoDir));
+            }
+            try (var cleanup = tracer.span("cleanup")) {
+                deleteRecursive(repoDir.resolve(".git"));
+                removeNonSubmissions(repoDir);
+                removeNonSources(repoDir);
+                removeEmptyDirs(repoDir);
+                String newName;
+                synchronized (newNames) {
+                    newName = newNames.next();
+                }
+                move(repoDir, destDir.resolve(newName));
+            }
             progress.advance();
-        }
+        });
     }
 
     private void checkout(String projectUrl, Path repoDir) throws GitAPIException, IOException {
-        int attempts = 2;
-        while (attempts-- > 0) {
-            try {
-                var clone = true;
-                if (exists(repoDir)) {
-                    var success = tryPull(repoDir);
-                    clone = !success;
-                }
-                if (clone) {
-                    cloneRepository()
-                            .setURI(projectUrl)
-                            .setDirectory(repoDir.toFile())
-                            .setCredentialsProvider(credentials)
-                            .call()
-                            .close();
-                    progress.additionalInfo("newly cloned");
-                }
-                break; // done
-            } catch (TransportException e) {
-                if (attempts == 0) {
-                    throw e;
-                } else {
-                    progress.interrupt();
-                    e.printStackTrace(System.out);
-                    System.out.println("Transport exception! Attempts left: " + attempts);
-                }
-            }
+        var clone = true;
+        if (exists(repoDir)) {
+            var success = tryPull(repoDir);
+            clone = !success;
+        }
+        if (clone) {
+            cloneRepository()
+                    .setURI(projectUrl)
+                    .setDirectory(repoDir.toFile())
+                    .setCredentialsProvider(credentials)
+                    .call()
+                    .close();
+            progress.additionalInfo("newly cloned");
         }
     }
 
@@ -0,0 +1,360 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.AsyncGitLab;
+import ch.trick17.gitlabtools.MergeRequestStore;
+import ch.trick17.gitlabtools.MergeRequestStore.StoredMergeRequest;
+import ch.trick17.gitlabtools.MergeRequestStore.StoredNote;
+import ch.trick17.gitlabtools.MultiPatternMatcher;
+import ch.trick17.gitlabtools.Tracer.Kind;
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import com.lexicalscope.jewel.cli.Option;
+import org.gitlab4j.api.Constants.MergeRequestState;
+import org.gitlab4j.api.models.MergeRequest;
+import org.gitlab4j.api.models.MergeRequestFilter;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+
+import static com.lexicalscope.jewel.cli.CliFactory.createCli;
+import static java.lang.Runtime.getRuntime;
+import static java.lang.String.join;
+import static java.nio.file.Files.newBufferedWriter;
+import static java.time.LocalDateTime.parse;
+import static java.time.ZoneId.systemDefault;
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.stream.Collectors.toList;
+import static org.gitlab4j.api.Constants.MergeRequestSearchIn.TITLE;
+
+/**
+ * Extracts data (e.g. points) from merge requests for each project in the
+ * given group and prints it in TSV format (or writes it to a TSV or CSV
+ * file), to be further processed in a spreadsheet. The data is extracted
+ * based on regular expressions provided using the {@code --patterns} option.
+ * <p>
+ * This command assumes that there are no merge requests with duplicate titles
+ * in the same project. It also sort of assumes that the merge request titles
+ * are generally the same across projects; otherwise, the table will be very
+ * sparse.
+ */
+public class ExtractFromMergeRequestsCmd extends CmdForProjects<ExtractFromMergeRequestsCmd.Args> {
+
+    private final MultiPatternMatcher matcher;
+    private final Date createdAfter;
+    private final Date createdBefore;
+    private final ExtractionTable table = new ExtractionTable();
+    private Set<String> instructors;
+    private CSVPrinter output;
+    private MergeRequestStore store;
+
+    public ExtractFromMergeRequestsCmd(String[] rawArgs) throws IOException {
+        super(createCli(Args.class).parseArguments(rawArgs));
+        if (args.getPatterns().isEmpty()) {
+            throw new ArgumentValidationException("No patterns specified");
+        }
+        try {
+            matcher = new MultiPatternMatcher(args.getPatterns());
+        } catch (PatternSyntaxException e) {
+            throw new ArgumentValidationException("Invalid pattern " + e.getMessage());
+        }
+        createdAfter = parseDate(args.getCreatedAfter());
+        createdBefore = parseDate(args.getCreatedBefore());
+    }
+
+    private static Date parseDate(String localDateTime) {
+        if (localDateTime == null) {
+            return null;
+        }
+        try {
+            return Date.from(parse(localDateTime).atZone(systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new ArgumentValidationException("Invalid date/time: " + e.getParsedString(), e);
+        }
+    }
+
+    @Override
+    protected void executeTasks() throws Exception {
+        instructors = getGroupMemberNames();
+
+        if (args.getOutput() != null) {
+            var format = args.getOutput().toLowerCase().endsWith(".csv")
+                    ? CSVFormat.DEFAULT
+                    : CSVFormat.TDF;
+            output = new CSVPrinter(newBufferedWriter(Path.of(args.getOutput())),
+                    format.withHeader("Project", "Merge request", "IID", "Matches"));
+        }
+
+        if (args.isIncremental()) {
+            store = new MergeRequestStore(gitlab, cacheDir().resolve("merge-requests"));
+        }
+
+        // fan out across projects and merge requests, but limit the number
+        // of concurrent requests to avoid overloading the server. With the
+        // store, each worker blocks while syncing a project; otherwise, the
+        // requests do not block any thread and the workers only extract data.
+        var async = store == null ? asyncGitlab(args.getThreads()) : null;
+        var executor = newFixedThreadPool(store != null
+                ? args.getThreads()
+                : getRuntime().availableProcessors());
+        try {
+            var tasks = new ArrayList<CompletableFuture<Void>>();
+            for (var project : iterateProjects()) {
+                var name = project.name();
+                if (output == null) {
+                    table.addProject(name);
+                }
+                var rows = new ConcurrentLinkedQueue<Row>();
+                CompletableFuture<Void> task;
+                if (store != null) {
+                    task = runAsync(() -> processStored(project, rows), executor);
+                } else {
+                    task = fetchMergeRequests(async, project)
+                            .thenCompose(reqs -> allOf(reqs.stream()
+                                    .map(req -> fetchNotes(async, project, req)
+                                            .thenAcceptAsync(notes ->
+                                                    processNotes(project, req, notes, rows), executor))
+                                    .toArray(CompletableFuture[]::new)));
+                }
+                tasks.add(task.whenComplete((result, e) -> {
+                    progress.finished(name);
+                    progress.setProject(project.group(), project.name());
+                    if (e == null) {
+                        addRows(name, rows);
+                        progress.advance();
+                    } else {
+                        synchronized (progress) {
+                            progress.advance("failed");
+                            progress.message("Problem with " + name + ":", e);
+                        }
+                    }
+                    progress.setProject(null, null);
+                }));
+            }
+            allOf(tasks.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        } finally {
+            executor.shutdown();
+            if (output != null) {
+                output.close();
+            }
+        }
+    }
+
+    private CompletableFuture<List<MergeRequest>> fetchMergeRequests(AsyncGitLab async, ProjectInfo project) {
+        var filter = new MergeRequestFilter()
+                .withProjectId(project.id())
+                .withState(MergeRequestState.forValue(args.getState()))
+                .withCreatedAfter(createdAfter)
+                .withCreatedBefore(createdBefore);
+        if (args.getTitleSearch() != null) {
+            filter.withSearch(args.getTitleSearch()).withIn(TITLE);
+        }
+        progress.started(project.name());
+        return async.getMergeRequests(project.id(), filter);
+    }
+
+    /**
+     * Fetches the notes of the given merge request. Only the ones that may
+     * contain data to extract are kept, as small records, while the
+     * discussions are being received.
+     */
+    private CompletableFuture<List<StoredNote>> fetchNotes(AsyncGitLab async, ProjectInfo project,
+                                                           MergeRequest req) {
+        // the consumer is called for one note after the other
+        var notes = new ArrayList<StoredNote>();
+        return async.forEachMergeRequestNote(project.id(), req.getIid(), n -> {
+            if (!n.system() && include(n.author())) {
+                notes.add(new StoredNote(n.author(), n.body()));
+            }
+        }).thenApply(v -> notes);
+    }
+
+    private void processNotes(ProjectInfo project, MergeRequest req, List<StoredNote> notes,
+                              Collection<Row> rows) {
+        // runs on a worker thread, so the project is given explicitly
+        try (var span = tracer.span("extract", project.name())) {
+            extractRow(req.getIid(), req.getTitle(), req.getCreatedAt(), notes.parallelStream(), rows);
+        }
+    }
+
+    private void processStored(ProjectInfo project, Collection<Row> rows) {
+        progress.started(project.name());
+        List<StoredMergeRequest> reqs;
+        try (var span = tracer.span(Kind.API_CALL, "sync", project.name())) {
+            reqs = retry.call(project.name(), () -> store.sync(project.id()));
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        try (var span = tracer.span("extract", project.name())) {
+            for (var req : reqs) {
+                if (selected(req)) {
+                    extractRow(req.iid(), req.title(), req.createdAt(), req.notes().parallelStream(), rows);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the merge request filters locally, the same way GitLab does
+     * when fetching merge requests directly.
+     */
+    private boolean selected(StoredMergeRequest req) {
+        var search = args.getTitleSearch();
+        return (args.getState().equals("all") || args.getState().equals(req.state()))
+               && (search == null || req.title().toLowerCase().contains(search.toLowerCase()))
+               && (createdAfter == null || !req.createdAt().before(createdAfter))
+               && (createdBefore == null || !req.createdAt().after(createdBefore));
+    }
+
+    private void extractRow(long iid, String title, Date createdAt, Stream<StoredNote> notes,
+                            Collection<Row> rows) {
+        // all notes are scanned only once for all patterns, in parallel
+        var matches = notes
+                .filter(n -> include(n.author()))
+                .flatMap(n -> matcher.extract(n.body()).stream())
+                .collect(toList());
+        if (!matches.isEmpty()) {
+            // keep only what is needed for the table, not the whole MR
+            rows.add(new Row(iid, title, createdAt, matches));
+        }
+    }
+
+    private boolean include(String username) {
+        return args.isIncludeNonInstructors() || instructors.contains(username);
+    }
+
+    private void addRows(String project, Collection<Row> rows) {
+        var sorted = rows.stream()
+                .sorted(comparing(Row::iid))
+                .collect(toList());
+        if (output == null) {
+            for (var row : sorted) {
+                table.add(project, row.title(), row.createdAt(), row.matches());
+            }
+        } else {
+            synchronized (output) {
+                try {
+                    for (var row : sorted) {
+                        output.printRecord(project, row.title(), row.iid(), join(", ", row.matches()));
+                    }
+                    output.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void printSummary() {
+        super.printSummary();
+        if (args.getOutput() == null) {
+            System.out.println();
+            table.print(System.out);
+        } else {
+            System.out.println("Results written to " + args.getOutput());
+        }
+    }
+
+    @Override
+    ResultFile results() {
+        // with --output, the rows are already in that file
+        var results = super.results();
+        return args.getOutput() == null ? results.withTable(table.data()) : results;
+    }
+
+    private record Row(long iid, String title, Date createdAt, List<String> matches) {}
+
+    public interface Args extends CmdForProjects.Args {
+        /**
+         * A list of regular expressions to search for in the merge requests.
+         * If a pattern contains capturing groups, the contents of the groups
+         * will be extracted; otherwise, the entire match will be used.
+         * If multiple matches are found for a single merge request, they are
+         * joined with a comma. All patterns are matched in a single pass from
+         * left to right, so matches of different patterns cannot overlap: at
+         * each position, the first pattern (in the order specified) that
+         * matches there is used, and the search continues after its match.
+         * A match that starts earlier therefore hides overlapping matches of
+         * other patterns, even of patterns specified before it.
+         */
+        @Option
+        List<String> getPatterns();
+
+        /**
+         * By default, only comments by instructors are considered. If this
+         * option is set, comments by non-instructors are also included.
+         */
+        @Option
+        boolean isIncludeNonInstructors();
+
+        /**
+         * Only merge requests in the given state are considered. By default,
+         * all merge requests are considered.
+         */
+        @Option(defaultValue = "all", pattern = "opened|closed|locked|merged|all")
+        String getState();
+
+        /**
+         * If specified, only merge requests whose title contains the given
+         * text are considered. The filtering is done by GitLab.
+         */
+        @Option(defaultToNull = true)
+        String getTitleSearch();
+
+        /**
+         * If specified, only merge requests created after the given date/time
+         * are considered. It is interpreted as local time and must be
+         * specified in ISO-8601 format, e.g. "2007-12-03T10:15:30".
+         */
+        @Option(defaultToNull = true)
+        String getCreatedAfter();
+
+        /**
+         * If specified, only merge requests created before the given
+         * date/time are considered. Same format as
+         * {@link #getCreatedAfter()}.
+         */
+        @Option(defaultToNull = true)
+        String getCreatedBefore();
+
+        /**
+         * The maximum number of concurrent requests to GitLab. If several
+         * groups are given, the limit applies to all of them together.
+         */
+        @Option(defaultValue = "8")
+        int getThreads();
+
+        /**
+         * If specified, the extracted data is not printed as a table at the
+         * end, but written to the given file while the projects are being
+         * processed, with one row per project and merge request. The file
+         * is written in CSV format if its name ends with ".csv" and in TSV
+         * format otherwise.
+         */
+        @Option(defaultToNull = true)
+        String getOutput();
+
+        /**
+         * If set, merge requests and their notes are kept in a local store
+         * (in the cache directory) and only merge requests that have been
+         * updated since the last run are fetched again. The data is then
+         * extracted from the store. The filter options are applied locally
+         * in this case.
+         */
+        @Option
+        boolean isIncremental();
+    }
+}
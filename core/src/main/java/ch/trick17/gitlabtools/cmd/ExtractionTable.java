@@ -0,0 +1,89 @@
+package ch.trick17.gitlabtools.cmd;
+
+import java.io.PrintStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static java.lang.String.join;
+import static java.util.Collections.emptyList;
+import static java.util.Map.Entry.comparingByValue;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A compact table of the data extracted from merge requests, with one row per
+ * project and one column per merge request title. Only the titles and the
+ * extracted strings are kept, indexed by project name and title, so that each
+ * cell can be looked up directly. Rows may be added concurrently.
+ */
+final class ExtractionTable {
+
+    // title -> creation date of earliest merge request with that title
+    private final Map<String, Date> titles = new ConcurrentHashMap<>();
+    // project name -> title -> extracted strings
+    private final Map<String, Map<String, List<String>>> rows = new ConcurrentSkipListMap<>();
+
+    void addProject(String project) {
+        rows.computeIfAbsent(project, k -> new ConcurrentHashMap<>());
+    }
+
+    void add(String project, String title, Date createdAt, List<String> matches) {
+        titles.merge(title, createdAt, ExtractionTable::earlier);
+        rows.computeIfAbsent(project, k -> new ConcurrentHashMap<>())
+                .put(title, matches);
+    }
+
+    /**
+     * Returns the contents of this table, e.g., to write them to a file.
+     */
+    Data data() {
+        return new Data(new HashMap<>(titles), new TreeMap<>(rows));
+    }
+
+    /**
+     * Adds the given contents, e.g., of a table for other projects.
+     */
+    void add(Data data) {
+        data.titles().forEach((title, createdAt) -> titles.merge(title, createdAt, ExtractionTable::earlier));
+        data.rows().forEach((project, row) -> rows.computeIfAbsent(project, k -> new ConcurrentHashMap<>())
+                .putAll(row));
+    }
+
+    private static Date earlier(Date d1, Date d2) {
+        return d1.before(d2) ? d1 : d2;
+    }
+
+    /**
+     * Returns all merge request titles, in the order in which the merge
+     * requests were created.
+     */
+    List<String> titles() {
+        return titles.entrySet().stream()
+                .sorted(comparingByValue())
+                .map(Map.Entry::getKey)
+                .collect(toList());
+    }
+
+    /**
+     * Prints the table in TSV format, with the rows ordered by project name.
+     */
+    void print(PrintStream out) {
+        var titles = titles();
+        out.print("Project");
+        titles.forEach(t -> out.print("\t" + t));
+        out.println();
+        rows.forEach((project, row) -> {
+            out.print(project);
+            for (var title : titles) {
+                out.print("\t" + join(", ", row.getOrDefault(title, emptyList())));
+            }
+            out.println();
+        });
+    }
+
+    record Data(Map<String, Date> titles, Map<String, Map<String, List<String>>> rows) {}
+}
@@ -3,13 +3,47 @@ package ch.trick17.gitlabtools.cmd;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.CredentialsProvider;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
+import static java.nio.file.Files.exists;
+import static org.eclipse.jgit.api.Git.cloneRepository;
+import static org.eclipse.jgit.api.Git.open;
 import static org.eclipse.jgit.api.MergeCommand.FastForwardMode.FF;
 
 final class GitUtils {
 
+    /**
+     * Helper method to bring the local repository in the given directory up
+     * to date with the given remote, by fetching, or by cloning if the
+     * directory does not exist yet. Since this method only does network
+     * operations once the repository is open, it can simply be called again
+     * if it fails with a transport exception.
+     */
+    static Git fetchOrClone(String url, Path repoDir, CredentialsProvider credentials)
+            throws GitAPIException, IOException {
+        if (exists(repoDir)) {
+            var git = open(repoDir.toFile());
+            try {
+                git.fetch()
+                        .setCredentialsProvider(credentials)
+                        .call();
+                return git;
+            } catch (GitAPIException | RuntimeException e) {
+                git.close();
+                throw e;
+            }
+        } else {
+            return cloneRepository()
+                    .setURI(url)
+                    .setDirectory(repoDir.toFile())
+                    .setCredentialsProvider(credentials)
+                    .call();
+        }
+    }
+
     /**
      * Helper method to check out the remote branch with the given name. If
      * there already exists a local branch with that name, it is checked out and
@@ -0,0 +1,141 @@
+package ch.trick17.gitlabtools.cmd;
+
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import com.lexicalscope.jewel.cli.Option;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static com.lexicalscope.jewel.cli.CliFactory.createCli;
+import static java.lang.Integer.parseInt;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.newOutputStream;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Combines the result files of a command that was run in several shards
+ * (see the <code>--shard</code> and <code>--resultOut</code> options), e.g.,
+ * on different machines, and prints the summary (and, for
+ * <code>extract-from-merge-requests</code>, the table of extracted data) as
+ * if the command had been run for all projects at once. The
+ * <code>--group</code> must be the same as for the shards.
+ */
+public class MergeResultsCmd extends Cmd<MergeResultsCmd.Args> {
+
+    private final List<ResultFile> results = new ArrayList<>();
+    private ExtractionTable table;
+
+    public MergeResultsCmd(String[] rawArgs) throws IOException {
+        super(createCli(Args.class).parseArguments(rawArgs));
+        for (var file : args.getResultFiles()) {
+            var result = ResultFile.read(Path.of(file));
+            if (!result.group().equals(args.getGroup())) {
+                throw new ArgumentValidationException(file + " contains results for group "
+                        + result.group() + ", not " + args.getGroup());
+            }
+            if (!results.isEmpty() && !result.command().equals(results.get(0).command())) {
+                throw new ArgumentValidationException(file + " contains results of "
+                        + result.command() + ", not " + results.get(0).command());
+            }
+            if (result.shard() == null) {
+                throw new ArgumentValidationException(file + " contains results of all projects, "
+                        + "not of a shard");
+            }
+            if (!results.isEmpty() && shardCount(result) != shardCount(results.get(0))) {
+                throw new ArgumentValidationException(file + " contains results of shard "
+                        + result.shard() + ", but " + results.get(0).shard() + " is from a split into "
+                        + shardCount(results.get(0)) + " shards");
+            }
+            if (results.stream().anyMatch(r -> shardIndex(r) == shardIndex(result))) {
+                throw new ArgumentValidationException(file + " contains results of shard "
+                        + result.shard() + ", which are already included");
+            }
+            results.add(result);
+        }
+        if (results.isEmpty()) {
+            throw new ArgumentValidationException("No result files given");
+        }
+    }
+
+    @Override
+    protected int taskCount() {
+        return results.size();
+    }
+
+    @Override
+    protected void executeTasks() {
+        var missing = new TreeSet<Integer>();
+        for (int i = 1; i <= shardCount(results.get(0)); i++) {
+            missing.add(i);
+        }
+        for (var result : results) {
+            progress.add(result.progress());
+            if (result.table() != null) {
+                if (table == null) {
+                    table = new ExtractionTable();
+                }
+                table.add(result.table());
+            }
+            missing.remove(shardIndex(result));
+        }
+        if (!missing.isEmpty()) {
+            progress.message("Warning: results of shards " + missing + " are missing");
+        }
+    }
+
+    private static int shardIndex(ResultFile result) {
+        return parseInt(result.shard().split("/")[0]);
+    }
+
+    private static int shardCount(ResultFile result) {
+        return parseInt(result.shard().split("/")[1]);
+    }
+
+    @Override
+    protected void printSummary() {
+        super.printSummary();
+        var failed = progress.results().steps().stream()
+                .filter(s -> s.result().equals("failed"))
+                .map(s -> s.group() + "/" + s.project())
+                .distinct().sorted()
+                .collect(joining(", "));
+        if (!failed.isEmpty()) {
+            System.out.println("Failed: " + failed);
+        }
+        if (table != null) {
+            if (args.getOutput() == null) {
+                System.out.println();
+                table.print(System.out);
+            } else {
+                try (var out = new PrintStream(newOutputStream(Path.of(args.getOutput())), false, UTF_8)) {
+                    table.print(out);
+                } catch (IOException e) {
+                    System.err.println("Could not write " + args.getOutput() + ": " + e.getMessage());
+                    return;
+                }
+                System.out.println("Results written to " + args.getOutput());
+            }
+        }
+    }
+
+    public interface Args extends ch.trick17.gitlabtools.cmd.Args {
+        /**
+         * The result files written by the shards, using the
+         * <code>--resultOut</code> option. All files must come from the
+         * same split into shards (e.g., "1/3", "2/3" and "3/3").
+         */
+        @Option
+        List<String> getResultFiles();
+
+        /**
+         * If specified, the combined table of extracted data (if any) is
+         * not printed, but written to the given file in TSV format.
+         */
+        @Option(defaultToNull = true)
+        String getOutput();
+    }
+}
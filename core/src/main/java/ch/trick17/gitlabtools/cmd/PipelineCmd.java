@@ -0,0 +1,292 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.Tracer.Kind;
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import com.lexicalscope.jewel.cli.Option;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static com.lexicalscope.jewel.cli.CliFactory.createCli;
+import static java.nio.file.Files.readAllLines;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Runs several commands, listed in a pipeline file, in a single JVM. The
+ * steps share the GitLab API client, the retry policy (and its circuit
+ * breaker), the tracer and the caches, e.g., for the projects of the group,
+ * which are then fetched only once for all steps.
+ * <p>
+ * The file contains one command invocation per line, as it would be given
+ * on the command line, e.g., <code>protect-branch --branch main</code>.
+ * Arguments containing spaces can be quoted. Empty lines and lines starting
+ * with <code>#</code> are ignored. The options given to the pipeline command
+ * itself (e.g., <code>--group</code>) apply to all steps that do not specify
+ * them; options concerning the connection (e.g., <code>--tokenFile</code>,
+ * <code>--record</code> or <code>--traceOut</code>) are only taken from the
+ * pipeline command.
+ * <p>
+ * Steps run one after the other, except for steps whose line ends with
+ * <code>&amp;</code>: those run in the background, concurrently with the
+ * following steps, until a line <code>wait</code> or the end of the file is
+ * reached. Progress is not shown for background steps. If a step fails, no
+ * further steps are started.
+ */
+public class PipelineCmd extends Cmd<PipelineCmd.Args> {
+
+    private final List<Step> steps = new ArrayList<>();
+
+    /**
+     * Returns a constructor for pipelines that run the given commands.
+     */
+    public static Constructor constructor(Map<String, Constructor> commands) {
+        return args -> new PipelineCmd(args, commands);
+    }
+
+    public PipelineCmd(String[] rawArgs, Map<String, Constructor> commands) throws IOException {
+        super(createCli(Args.class).parseArguments(rawArgs));
+        var globalOptions = options(rawArgs);
+        globalOptions.removeIf(o -> o.get(0).equals("--pipelineFile"));
+
+        var file = Path.of(args.getPipelineFile());
+        var lines = readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            var line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            var location = file + ":" + (i + 1) + ": ";
+            var background = line.endsWith("&");
+            if (background) {
+                line = line.substring(0, line.length() - 1).strip();
+            }
+            var words = split(line);
+            if (words.isEmpty()) {
+                throw new ArgumentValidationException(location + "command missing");
+            } else if (words.equals(List.of("wait"))) {
+                steps.add(new Step(line, null, false));
+                continue;
+            }
+            var constructor = commands.get(words.get(0));
+            if (constructor == null || words.get(0).equals("pipeline")) {
+                throw new ArgumentValidationException(location + "unknown command " + words.get(0));
+            }
+
+            var stepArgs = withOptions(words.subList(1, words.size()), globalOptions);
+            try {
+                // construct all steps up front, so that invalid arguments
+                // are reported before anything is done
+                var cmd = context().construct(constructor, stepArgs);
+                steps.add(new Step(line, cmd, background));
+            } catch (ArgumentValidationException e) {
+                throw new ArgumentValidationException(location + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Splits the given raw arguments into options, i.e., lists starting with
+     * an option name, followed by the option's values (if any).
+     */
+    static List<List<String>> options(String[] rawArgs) {
+        var options = new ArrayList<List<String>>();
+        for (var arg : rawArgs) {
+            if (arg.startsWith("--") || options.isEmpty()) {
+                options.add(new ArrayList<>());
+            }
+            options.get(options.size() - 1).add(arg);
+        }
+        return options;
+    }
+
+    /**
+     * Returns the given arguments, followed by those of the given options
+     * that are not specified in the arguments.
+     */
+    static String[] withOptions(List<String> args, List<List<String>> options) {
+        var result = new ArrayList<>(args);
+        for (var option : options) {
+            if (!args.contains(option.get(0))) {
+                result.addAll(option);
+            }
+        }
+        return result.toArray(String[]::new);
+    }
+
+    /**
+     * Splits the given line into words, separated by whitespace. Words may
+     * be enclosed in single or double quotes to include whitespace.
+     */
+    static List<String> split(String line) {
+        var words = new ArrayList<String>();
+        var word = new StringBuilder();
+        var inWord = false;
+        char quote = 0;
+        for (var c : line.toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    word.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inWord = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (quote != 0) {
+            throw new ArgumentValidationException("unterminated quote in: " + line);
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Runs the steps. Unlike other commands, the pipeline does not track
+     * progress itself; each step does.
+     */
+    @Override
+    public void execute() throws Exception {
+        try (var span = tracer.span(Kind.COMMAND, "PipelineCmd", null)) {
+            executeTasks();
+        } finally {
+            if (!isShared()) {
+                context().close();
+            }
+        }
+        printSummary();
+        if (!isShared()) {
+            context().printOutputs();
+        }
+
+        var failed = steps.stream().filter(s -> s.failure != null).findFirst();
+        if (failed.isPresent() && failed.get().failure instanceof Error e) {
+            throw e;
+        } else if (failed.isPresent()) {
+            throw (Exception) failed.get().failure;
+        }
+    }
+
+    @Override
+    protected int taskCount() {
+        return (int) steps.stream().filter(s -> s.cmd != null).count();
+    }
+
+    @Override
+    protected void executeTasks() throws Exception {
+        var executor = newCachedThreadPool();
+        var running = new ArrayList<Future<?>>();
+        var total = taskCount();
+        var number = 0;
+        try {
+            for (var step : steps) {
+                if (steps.stream().anyMatch(s -> s.failure != null)) {
+                    break;
+                }
+                if (step.cmd == null) { // wait
+                    awaitAll(running);
+                    continue;
+                }
+                number++;
+                System.out.println();
+                System.out.println("[" + number + "/" + total + "] " + step.line);
+                if (step.background) {
+                    step.cmd.runInBackground();
+                    running.add(executor.submit(step::run));
+                } else {
+                    step.run();
+                }
+            }
+            awaitAll(running);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> running) throws InterruptedException {
+        for (var future : running) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new AssertionError(e); // step.run() catches all throwables
+            }
+        }
+        running.clear();
+    }
+
+    @Override
+    protected void printSummary() {
+        System.out.println();
+        System.out.println("Pipeline summary:");
+        var number = 0;
+        for (var step : steps) {
+            if (step.cmd == null) {
+                continue;
+            }
+            number++;
+            String result;
+            if (step.failure != null) {
+                result = "failed (" + step.failure.getMessage() + ")";
+            } else if (step.nanos < 0) {
+                result = "not run";
+            } else {
+                result = step.cmd.resultSummary() + String.format(" (%.1f s)", step.nanos / 1e9);
+            }
+            System.out.println("  [" + number + "] " + step.line + ": " + result);
+        }
+        var caches = List.of(context().groups.stats(), context().members.stats(),
+                context().projects.stats());
+        var hits = caches.stream().mapToLong(s -> s.hits()).sum();
+        var misses = caches.stream().mapToLong(s -> s.misses()).sum();
+        System.out.println("Shared lookups: " + misses + " fetched, " + hits + " reused.");
+    }
+
+    private static class Step {
+        final String line;
+        final Cmd<?> cmd; // null for "wait"
+        final boolean background;
+        volatile long nanos = -1;
+        volatile Throwable failure;
+
+        Step(String line, Cmd<?> cmd, boolean background) {
+            this.line = line;
+            this.cmd = cmd;
+            this.background = background;
+        }
+
+        void run() {
+            var start = System.nanoTime();
+            try {
+                cmd.execute();
+            } catch (Throwable e) {
+                failure = e; // reported in summary and rethrown in the end
+            } finally {
+                nanos = System.nanoTime() - start;
+            }
+        }
+    }
+
+    public interface Args extends ch.trick17.gitlabtools.cmd.Args {
+        /**
+         * The file listing the commands to run, one per line.
+         */
+        @Option
+        String getPipelineFile();
+    }
+}
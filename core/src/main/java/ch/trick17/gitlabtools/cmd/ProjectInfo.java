@@ -0,0 +1,25 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.ProjectRoster.RosterProject;
+import org.gitlab4j.api.models.Project;
+
+import java.util.Date;
+
+/**
+ * A compact description of a GitLab project, holding only the information
+ * that commands need. Used instead of the full {@link Project} model, which
+ * contains a lot of data that is never used.
+ */
+public record ProjectInfo(long id, String name, String group, String defaultBranch, String webUrl,
+                          Date lastActivityAt) {
+
+    static ProjectInfo of(Project project, String group) {
+        return new ProjectInfo(project.getId(), project.getName(), group, project.getDefaultBranch(),
+                project.getWebUrl(), project.getLastActivityAt());
+    }
+
+    static ProjectInfo of(RosterProject project, String group) {
+        return new ProjectInfo(project.id(), project.name(), group, project.defaultBranch(),
+                project.webUrl(), project.lastActivityAt());
+    }
+}
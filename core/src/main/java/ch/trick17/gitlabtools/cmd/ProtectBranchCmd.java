@@ -1,5 +1,6 @@
 package ch.trick17.gitlabtools.cmd;
 
+import ch.trick17.gitlabtools.Tracer.Kind;
 import com.lexicalscope.jewel.cli.Option;
 import org.gitlab4j.api.models.AccessLevel;
 
@@ -18,14 +19,19 @@ public class ProtectBranchCmd extends CmdForProjects<ProtectBranchCmd.Args> {
         var branchApi = gitlab.getProtectedBranchesApi();
         var branch = args.getBranch();
         var access = AccessLevel.valueOf(args.getBranchAccess().toUpperCase());
-        for (var project : getProjects()) {
+        forEachProject(project -> {
             // remove protected branch first, in case it already exists
-            if (branchApi.getOptionalProtectedBranch(project, branch).isPresent()) {
-                branchApi.unprotectBranch(project, branch);
+            if (traced("get protected branch", () -> retry.callOptional(project.name(), () ->
+                    branchApi.getOptionalProtectedBranch(project.id(), branch))).isPresent()) {
+                try (var unprotect = tracer.span(Kind.API_CALL, "unprotect branch")) {
+                    retry.run(project.name(), () -> branchApi.unprotectBranch(project.id(), branch));
+                }
             }
-            branchApi.protectBranch(project, branch, access, access);
+            traced("protect branch", () -> retry.callCreate(project.name(),
+                    () -> branchApi.protectBranch(project.id(), branch, access, access),
+                    () -> branchApi.getOptionalProtectedBranch(project.id(), branch)));
             progress.advance();
-        }
+        });
     }
 
     public interface Args extends CmdForProjects.Args {
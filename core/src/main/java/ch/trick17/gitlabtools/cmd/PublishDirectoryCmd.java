@@ -1,8 +1,7 @@
 package ch.trick17.gitlabtools.cmd;
 
+import ch.trick17.gitlabtools.Tracer.Kind;
 import com.lexicalscope.jewel.cli.Option;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 import java.io.IOException;
@@ -14,12 +13,11 @@ import java.util.List;
 import java.util.Set;
 
 import static ch.trick17.gitlabtools.cmd.GitUtils.checkOutRemoteBranch;
+import static ch.trick17.gitlabtools.cmd.GitUtils.fetchOrClone;
 import static com.lexicalscope.jewel.cli.CliFactory.createCli;
 import static java.nio.file.Files.*;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.Objects.requireNonNullElse;
-import static org.eclipse.jgit.api.Git.cloneRepository;
-import static org.eclipse.jgit.api.Git.open;
 
 /**
  * Publishes the content of a given directory into all repositories in the given
@@ -37,7 +35,6 @@ import static org.eclipse.jgit.api.Git.open;
  */
 public class PublishDirectoryCmd extends CmdForProjects<PublishDirectoryCmd.Args> {
 
-    private static final int ATTEMPTS = 3;
     private static final int SLEEP_TIME = 200;
     private static final Set<String> PRIMORDIAL_FILES = Set.of(".git", "README.md");
 
@@ -60,63 +57,41 @@ public class PublishDirectoryCmd extends CmdForProjects<PublishDirectoryCmd.Args
             createDirectories(workDir);
         }
 
-        var projects = getProjects();
-        System.out.println("Publishing directory to " + projects.size() + " repositories...");
-        projects: for (var project : projects) {
+        progress.message("Publishing directory to repositories...");
+        forEachProject(project -> {
             try {
-                var repoDir = workDir.resolve(project.getName());
+                var repoDir = projectDir(workDir, project);
                 if (alreadyPublished(repoDir)) {
                     progress.advance("existing");
-                    continue;
+                    return;
                 }
 
-                var branch = requireNonNullElse(args.getBranch(), project.getDefaultBranch());
+                var branch = requireNonNullElse(args.getBranch(), project.defaultBranch());
 
-                Git git = null;
-                for (int attempts = ATTEMPTS; attempts-- > 0; ) {
-                    try {
-                        if (exists(repoDir)) {
-                            git = open(repoDir.toFile());
-                            git.fetch()
-                                    .setCredentialsProvider(credentials)
-                                    .call();
-                        } else {
-                            git = cloneRepository()
-                                    .setURI(project.getWebUrl())
-                                    .setDirectory(repoDir.toFile())
-                                    .setCredentialsProvider(credentials)
-                                    .call();
-                            progress.additionalInfo("newly cloned");
-                        }
-
-                        var allBranches = new ArrayList<>(List.of(branch));
-                        allBranches.addAll(args.getExtraBranches());
-                        for (var b : allBranches) {
-                            var remote = git.getRepository().findRef("origin/" + b);
-                            if (remote == null) {
-                                progress.advance("failed");
-                                progress.interrupt();
-                                System.out.println("Remote branch " + b + " not found for " + project.getName());
-                                continue projects;
-                            }
-                        }
+                var cloning = !exists(repoDir);
+                var git = traced(Kind.GIT_OPERATION, cloning ? "clone" : "fetch", () -> retry.call(project.name(),
+                        () -> fetchOrClone(project.webUrl(), repoDir, credentials)));
+                if (cloning) {
+                    progress.additionalInfo("newly cloned");
+                }
 
-                        checkOutRemoteBranch(git, branch);
-                        break;
-                    } catch (TransportException e) {
-                        progress.interrupt();
-                        e.printStackTrace(System.out);
-                        System.out.println(
-                                "Transport exception for " + project.getName() +
-                                "! Attempts left: " + attempts);
-                        if (attempts == 0) {
-                            throw e;
-                        }
+                var allBranches = new ArrayList<>(List.of(branch));
+                allBranches.addAll(args.getExtraBranches());
+                for (var b : allBranches) {
+                    var remote = git.getRepository().findRef("origin/" + b);
+                    if (remote == null) {
+                        progress.advance("failed");
+                        progress.message("Remote branch " + b + " not found for " + project.name());
+                        return;
                     }
                 }
+
+                try (var checkout = tracer.span(Kind.GIT_OPERATION, "checkout")) {
+                    checkOutRemoteBranch(git, branch);
+                }
                 if (alreadyPublished(repoDir)) {
                     progress.advance("existing");
-                    continue;
+                    return;
                 }
 
                 Path destDir;
@@ -127,43 +102,33 @@ public class PublishDirectoryCmd extends CmdForProjects<PublishDirectoryCmd.Args
                     createDirectories(destDir);
                 }
 
-                copyDir(dir, destDir, args.getIgnorePattern());
-                git.add().addFilepattern(".").call();
-                var message = requireNonNullElse(args.getCommitMessage(),
-                        "Publish " + requireNonNullElse(args.getDestDir(), "directory"));
-                var commitId = git.commit()
-                        .setMessage(message)
-                        .call().getId();
-
-                for (var extra : args.getExtraBranches()) {
-                    checkOutRemoteBranch(git, extra);
-                    git.merge()
-                            .include(commitId)
+                try (var copy = tracer.span("copy")) {
+                    copyDir(dir, destDir, args.getIgnorePattern());
+                }
+                try (var commit = tracer.span("commit")) {
+                    git.add().addFilepattern(".").call();
+                    var message = requireNonNullElse(args.getCommitMessage(),
+                            "Publish " + requireNonNullElse(args.getDestDir(), "directory"));
+                    var commitId = git.commit()
                             .setMessage(message)
-                            .call();
+                            .call().getId();
+
+                    for (var extra : args.getExtraBranches()) {
+                        checkOutRemoteBranch(git, extra);
+                        git.merge()
+                                .include(commitId)
+                                .setMessage(message)
+                                .call();
+                    }
                 }
 
-                for (int attempts = ATTEMPTS; attempts-- > 0; ) {
-                    try {
-                        var push = git.push()
-                                .add(branch)
-                                .setCredentialsProvider(credentials);
-                        for (var extra : args.getExtraBranches()) {
-                            push.add(extra);
-                        }
-                        push.call();
-                        break;
-                    } catch (TransportException e) {
-                        progress.interrupt();
-                        e.printStackTrace(System.out);
-                        System.out.println(
-                                "Transport exception for " + project.getName() +
-                                "! Attempts left: " + attempts);
-                        if (attempts == 0) {
-                            throw e;
-                        }
-                    }
+                var push = git.push()
+                        .add(branch)
+                        .setCredentialsProvider(credentials);
+                for (var extra : args.getExtraBranches()) {
+                    push.add(extra);
                 }
+                traced(Kind.GIT_OPERATION, "push", () -> retry.call(project.name(), push::call));
 
                 git.close();
                 progress.advance();
@@ -171,11 +136,9 @@ public class PublishDirectoryCmd extends CmdForProjects<PublishDirectoryCmd.Args
                 Thread.sleep(SLEEP_TIME);
             } catch (Exception e) {
                 progress.advance("failed");
-                progress.interrupt();
-                System.out.println("Problem with " + project.getName() + ":");
-                e.printStackTrace(System.out);
+                progress.message("Problem with " + project.name() + ":", e);
             }
-        }
+        });
     }
 
     private boolean alreadyPublished(Path repoDir) throws IOException {
@@ -42,19 +42,22 @@ public class PublishFileCmd extends CmdForProjects<PublishFileCmd.Args> {
         var message = requireNonNullElse(args.getCommitMessage(), "Publish " + file.getFileName());
 
         var fileApi = gitlab.getRepositoryFileApi();
-        for (var project : getProjects()) {
-            var branch = requireNonNullElse(args.getBranch(), project.getDefaultBranch());
-            if (fileApi.getOptionalFile(project, destFile, branch).isPresent()) {
+        forEachProject(project -> {
+            var branch = requireNonNullElse(args.getBranch(), project.defaultBranch());
+            if (traced("get file", () -> retry.callOptional(project.name(), () ->
+                    fileApi.getOptionalFile(project.id(), destFile, branch))).isPresent()) {
                 progress.advance("existing");
-                continue;
+                return;
             }
 
             var repoFile = new RepositoryFile();
             repoFile.setFilePath(destFile);
             repoFile.encodeAndSetContent(content);
-            fileApi.createFile(project, repoFile, branch, message);
+            traced("create file", () -> retry.callCreate(project.name(),
+                    () -> fileApi.createFile(project.id(), repoFile, branch, message),
+                    () -> fileApi.getOptionalFile(project.id(), destFile, branch)));
             progress.advance();
-        }
+        });
     }
 
     public interface Args extends CmdForProjects.Args {
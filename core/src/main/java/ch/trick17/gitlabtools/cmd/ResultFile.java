@@ -0,0 +1,31 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.ProgressTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The results of a command run on (a shard of) the projects, as written to
+ * the <code>--resultOut</code> file: the progress, including the outcome of
+ * each project, and the extracted data, if any. The results of several
+ * shards can be combined using {@link MergeResultsCmd}.
+ */
+record ResultFile(String command, String group, String shard,
+                  ProgressTracker.Results progress, ExtractionTable.Data table) {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    static ResultFile read(Path file) throws IOException {
+        return JSON.readValue(file.toFile(), ResultFile.class);
+    }
+
+    void write(Path file) throws IOException {
+        JSON.writeValue(file.toFile(), this);
+    }
+
+    ResultFile withTable(ExtractionTable.Data table) {
+        return new ResultFile(command, group, shard, progress, table);
+    }
+}
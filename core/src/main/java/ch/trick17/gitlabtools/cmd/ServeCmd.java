@@ -0,0 +1,199 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.ServeClient;
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import com.lexicalscope.jewel.cli.Option;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.lexicalscope.jewel.cli.CliFactory.createCli;
+import static java.net.StandardProtocolFamily.UNIX;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.time.temporal.ChronoUnit.SECONDS;
+
+/**
+ * Keeps running and executes command invocations sent by a
+ * {@link ServeClient} over a Unix domain socket, streaming their output back
+ * to the client. All commands run in the same JVM and share the GitLab API
+ * client (including its open connections) and the caches, like the steps of
+ * a {@link PipelineCmd}. Hence, repeated commands take about as long as the
+ * actual work, not as long as it takes to start and warm up the JVM.
+ * <p>
+ * Commands are executed one at a time, in the order in which they arrive.
+ * Options given to the server itself (e.g., <code>--group</code>) apply to
+ * all commands that do not specify them. Since relative paths are resolved
+ * against the server's working directory, clients must run in the same
+ * directory. The server stops when it receives the command
+ * <code>stop</code>.
+ */
+public class ServeCmd extends Cmd<ServeCmd.Args> {
+
+    private final Map<String, Constructor> commands;
+    private final List<List<String>> serverOptions;
+
+    /**
+     * Returns a constructor for servers that run the given commands.
+     */
+    public static Constructor constructor(Map<String, Constructor> commands) {
+        return args -> new ServeCmd(args, commands);
+    }
+
+    public ServeCmd(String[] rawArgs, Map<String, Constructor> commands) throws IOException {
+        super(createCli(Args.class).parseArguments(rawArgs));
+        this.commands = commands;
+        serverOptions = PipelineCmd.options(rawArgs);
+        serverOptions.removeIf(o -> o.get(0).equals("--socket"));
+    }
+
+    @Override
+    public void execute() throws Exception {
+        var socket = Path.of(args.getSocket()).toAbsolutePath();
+        createDirectories(socket.getParent());
+        if (exists(socket)) {
+            try (var channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+                throw new ArgumentValidationException("Server already running at " + socket);
+            } catch (IOException e) {
+                deleteIfExists(socket); // stale, from a server that was killed
+            }
+        }
+        var cleanup = new Thread(() -> {
+            try {
+                deleteIfExists(socket);
+            } catch (IOException ignored) {}
+        });
+        Runtime.getRuntime().addShutdownHook(cleanup);
+
+        try (var server = ServerSocketChannel.open(UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            System.out.println("Serving on " + socket);
+            var running = true;
+            while (running) {
+                try (var channel = server.accept()) {
+                    running = handle(channel);
+                } catch (IOException e) {
+                    System.out.println("Problem with client connection (" + e.getMessage() + ")");
+                }
+            }
+        } finally {
+            deleteIfExists(socket);
+            Runtime.getRuntime().removeShutdownHook(cleanup);
+            context().close();
+        }
+        System.out.println("Server stopped.");
+        context().printOutputs();
+    }
+
+    /**
+     * Handles a single command invocation and returns whether the server
+     * should keep running.
+     */
+    private boolean handle(SocketChannel channel) throws IOException {
+        var in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), UTF_8));
+        var out = new PrintStream(Channels.newOutputStream(channel), true, UTF_8);
+        if (!ServeClient.PROTOCOL.equals(in.readLine())) {
+            return reply(out, 2, "Unsupported client version");
+        }
+        var directory = in.readLine();
+        var tty = in.readLine();
+        var count = parseCount(in.readLine());
+        if (directory == null || tty == null || count < 1) {
+            return reply(out, 2, "Malformed request");
+        }
+        var invocation = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            var arg = in.readLine();
+            if (arg == null) {
+                return reply(out, 2, "Malformed request");
+            }
+            invocation.add(arg);
+        }
+
+        if (!directory.equals(Path.of("").toAbsolutePath().toString())) {
+            return reply(out, 2, "Server runs in " + Path.of("").toAbsolutePath() +
+                    "; run the client in the same directory");
+        }
+        var name = invocation.get(0);
+        if (name.equals("stop")) {
+            reply(out, 0, "Stopping server.");
+            return false;
+        }
+        var constructor = commands.get(name);
+        if (constructor == null || name.equals("serve")) {
+            return reply(out, 2, "Unknown command " + name);
+        }
+
+        var options = new ArrayList<>(serverOptions);
+        // the server has no terminal, so decide based on the client's
+        options.add(List.of("--progress", Boolean.parseBoolean(tty) ? "dashboard" : "compact"));
+        var cmdArgs = PipelineCmd.withOptions(invocation.subList(1, invocation.size()), options);
+
+        var start = System.nanoTime();
+        var exitCode = 0;
+        var stdout = System.out;
+        System.setOut(out);
+        try {
+            context().construct(constructor, cmdArgs).execute();
+        } catch (ArgumentValidationException e) {
+            out.println(e.getMessage());
+            exitCode = 1;
+        } catch (Throwable e) {
+            // also errors (e.g., assertion errors), which must not stop the server
+            e.printStackTrace(out);
+            exitCode = 1;
+        } finally {
+            System.setOut(stdout);
+        }
+        reply(out, exitCode, null);
+        System.out.printf("%s %s: exit code %d (%.1f s)\n", LocalTime.now().truncatedTo(SECONDS),
+                String.join(" ", invocation), exitCode, (System.nanoTime() - start) / 1e9);
+        return true;
+    }
+
+    private static int parseCount(String line) {
+        try {
+            return line == null ? -1 : Integer.parseInt(line);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean reply(PrintStream out, int exitCode, String message) {
+        if (message != null) {
+            out.println(message);
+        }
+        out.print(ServeClient.END);
+        out.println(exitCode);
+        return true;
+    }
+
+    @Override
+    protected int taskCount() {
+        return 0;
+    }
+
+    @Override
+    protected void executeTasks() {}
+
+    public interface Args extends ch.trick17.gitlabtools.cmd.Args {
+        /**
+         * The path of the Unix domain socket to listen on.
+         */
+        @Option(defaultValue = ServeClient.DEFAULT_SOCKET)
+        String getSocket();
+    }
+}
@@ -0,0 +1,15 @@
+package ch.trick17.gitlabtools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ch.trick17.gitlabtools.ApiCall")
+@Label("GitLab API Call")
+@Description("A call to the GitLab API, including retries")
+@Category("GitLab Tools")
+@StackTrace(false)
+public class ApiCallEvent extends SpanEvent {
+}
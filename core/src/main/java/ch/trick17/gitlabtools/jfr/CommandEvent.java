@@ -0,0 +1,15 @@
+package ch.trick17.gitlabtools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ch.trick17.gitlabtools.Command")
+@Label("Command")
+@Description("Execution of a gitlab-tools command")
+@Category("GitLab Tools")
+@StackTrace(false)
+public class CommandEvent extends SpanEvent {
+}
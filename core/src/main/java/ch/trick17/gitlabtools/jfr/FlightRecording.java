@@ -0,0 +1,51 @@
+package ch.trick17.gitlabtools.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+
+/**
+ * A JFR recording of a command run, written to a file when closed. It is
+ * based on the JDK's "profile" configuration, tuned for the short, I/O-bound
+ * runs of gitlab-tools: the events of this package are always recorded,
+ * socket and file I/O is recorded from a much lower threshold, and the
+ * expensive old-object sampling is disabled.
+ */
+public class FlightRecording implements AutoCloseable {
+
+    private final Recording recording;
+
+    public FlightRecording(Path destination) throws IOException {
+        Configuration profile;
+        try {
+            profile = Configuration.getConfiguration("profile");
+        } catch (ParseException e) {
+            throw new AssertionError(e); // built into the JDK
+        }
+        var settings = new HashMap<>(profile.getSettings());
+        for (var event : new String[] {"Command", "Project", "ApiCall", "GitOperation", "Phase"}) {
+            settings.put("ch.trick17.gitlabtools." + event + "#enabled", "true");
+            settings.put("ch.trick17.gitlabtools." + event + "#threshold", "0 ms");
+        }
+        for (var event : new String[] {"SocketRead", "SocketWrite", "FileRead", "FileWrite"}) {
+            settings.put("jdk." + event + "#threshold", "1 ms");
+        }
+        settings.put("jdk.OldObjectSample#enabled", "false");
+
+        recording = new Recording(settings);
+        recording.setName("gitlab-tools");
+        recording.setToDisk(true);
+        recording.setDestination(destination);
+        recording.start();
+    }
+
+    @Override
+    public void close() {
+        recording.stop(); // writes the recording to the destination
+        recording.close();
+    }
+}
@@ -0,0 +1,15 @@
+package ch.trick17.gitlabtools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ch.trick17.gitlabtools.GitOperation")
+@Label("Git Operation")
+@Description("A Git operation, e.g., a clone, fetch or push, including retries")
+@Category("GitLab Tools")
+@StackTrace(false)
+public class GitOperationEvent extends SpanEvent {
+}
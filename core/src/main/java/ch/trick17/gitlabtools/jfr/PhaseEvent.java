@@ -0,0 +1,15 @@
+package ch.trick17.gitlabtools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ch.trick17.gitlabtools.Phase")
+@Label("Phase")
+@Description("A local phase of processing a project, e.g., copying files")
+@Category("GitLab Tools")
+@StackTrace(false)
+public class PhaseEvent extends SpanEvent {
+}
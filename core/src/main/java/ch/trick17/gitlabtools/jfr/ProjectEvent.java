@@ -0,0 +1,15 @@
+package ch.trick17.gitlabtools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ch.trick17.gitlabtools.Project")
+@Label("Project")
+@Description("Processing of a single project by a command")
+@Category("GitLab Tools")
+@StackTrace(false)
+public class ProjectEvent extends SpanEvent {
+}
@@ -0,0 +1,27 @@
+package ch.trick17.gitlabtools.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base class of the JFR events emitted for the spans of a
+ * {@link ch.trick17.gitlabtools.Tracer}. JFR requires the fields of events to
+ * be declared in the event classes (or their superclasses), so all events
+ * share the same fields.
+ */
+public abstract class SpanEvent extends Event {
+
+    @Label("Name")
+    public String name;
+
+    @Label("Project")
+    public String project;
+
+    @Label("Items")
+    @Description("Number of items (e.g., list entries) produced, or -1 if not applicable")
+    public int items;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,26 @@
+package ch.trick17.gitlabtools.jfr;
+
+import ch.trick17.gitlabtools.Tracer.Kind;
+
+/**
+ * Creates the {@link SpanEvent}s for the spans of a
+ * {@link ch.trick17.gitlabtools.Tracer}. This is not done in
+ * {@link SpanEvent} itself, because verifying the factory method loads the
+ * subclasses, which must not happen while JFR is still setting up
+ * {@link SpanEvent}.
+ */
+public class SpanEvents {
+
+    /**
+     * Creates a new event for a span of the given kind.
+     */
+    public static SpanEvent create(Kind kind) {
+        return switch (kind) {
+            case COMMAND -> new CommandEvent();
+            case PROJECT -> new ProjectEvent();
+            case API_CALL -> new ApiCallEvent();
+            case GIT_OPERATION -> new GitOperationEvent();
+            case PHASE -> new PhaseEvent();
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package ch.trick17.gitlabtools;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.gitlab4j.api.models.MergeRequestFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncGitLabTest {
+
+    private static final RetryPolicy.Listener SILENT = new RetryPolicy.Listener() {
+        public void retrying(String description, Exception e, int attemptsLeft, Duration delay) {}
+
+        public void circuitOpened(Duration pause) {}
+    };
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        try (var gitlab = new FakeGitLab(42)) {
+            var group = gitlab.generateGroup("course", 60);
+            var time = Instant.parse("2024-03-01T10:00:00Z");
+            for (var project : group.projects) {
+                gitlab.addMergeRequest(project, "Review", time, "Grade: 5", "Well done");
+            }
+            gitlab.withErrorRate(0.05).withRateLimitRate(0.05);
+
+            var retry = new RetryPolicy(5, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+            var async = new AsyncGitLab(gitlab.url(), "token", 100, retry, 4);
+
+            var tasks = new ArrayList<CompletableFuture<Void>>();
+            for (var project : group.projects) {
+                var id = project.id;
+                tasks.add(CompletableFuture.allOf(
+                        count(consumer -> async.forEachPushEvent(id, null, null, e -> {
+                            consumer.accept(e);
+                            return true;
+                        })).thenAccept(count -> assertEquals(1, count)),
+                        async.getProjectMembers(id).thenAccept(members ->
+                                assertTrue(members.isEmpty())),
+                        async.getMergeRequests(id, new MergeRequestFilter())
+                                .thenCompose(reqs -> count(consumer ->
+                                        async.forEachMergeRequestNote(id, reqs.get(0).getIid(), consumer)))
+                                .thenAccept(count -> assertEquals(2, count))));
+            }
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+            assertTrue(gitlab.injectedErrorCount() > 0);
+        }
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var group = gitlab.generateGroup("course", 5);
+            for (int i = 0; i < 250; i++) {
+                group.members.add(gitlab.addUser("extra" + i));
+            }
+
+            var retry = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+            var async = new AsyncGitLab(gitlab.url(), "token", 100, retry, 2);
+            var members = async.getGroupMembers("course").join();
+            assertEquals(group.members.size(), members.size());
+            assertEquals("extra249", members.get(members.size() - 1).username());
+        }
+    }
+
+    @Test
+    public void testStreamingStopsEarly() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var group = gitlab.generateGroup("course", 1);
+            var project = group.projects.get(0);
+            var start = Instant.parse("2024-03-01T10:00:00Z");
+            for (int i = 0; i < 25; i++) {
+                gitlab.commit(project, "main", Map.of("Main.java", "class Main { int i = " + i + "; }"),
+                        "Commit " + i, gitlab.user(project.name), start.plusSeconds(60 * i));
+            }
+
+            var retry = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+            var async = new AsyncGitLab(gitlab.url(), "token", 10, retry, 2);
+            var events = new ArrayList<AsyncGitLab.PushEventInfo>();
+            var requests = gitlab.requestCount();
+            async.forEachPushEvent(project.id, null, null, e -> {
+                events.add(e);
+                return events.size() < 3;
+            }).join();
+            assertEquals(1, gitlab.requestCount() - requests);
+            assertEquals(3, events.size());
+            assertEquals(start.plusSeconds(60 * 24), events.get(0).createdAt());
+            assertEquals("main", events.get(0).ref());
+            assertEquals(project.name, events.get(0).authorUsername());
+        }
+    }
+
+    @Test
+    public void testNullObjects() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var project = gitlab.generateGroup("course", 1).projects.get(0);
+            var time = Instant.parse("2024-03-01T10:00:00Z");
+            var request = gitlab.addMergeRequest(project, "Review", time);
+            gitlab.addNote(request, "Imported", null, time);
+            gitlab.addNote(request, "Grade: 5", time.plusSeconds(1));
+
+            var retry = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+            var async = new AsyncGitLab(gitlab.url(), "token", 100, retry, 2);
+            var notes = new ArrayList<AsyncGitLab.NoteInfo>();
+            async.forEachMergeRequestNote(project.id, request.iid, notes::add).join();
+            assertEquals(List.of(
+                    new AsyncGitLab.NoteInfo(null, "Imported", false),
+                    new AsyncGitLab.NoteInfo("root", "Grade: 5", false)), notes);
+        }
+
+        // the fields after a null object must still be read
+        var json = """
+                {"push_data": null, "author_username": "student", "created_at": "2024-03-01T10:00:00Z"}""";
+        try (var parser = new JsonFactory().createParser(json)) {
+            parser.nextToken();
+            var event = AsyncGitLab.PushEventInfo.decode(parser);
+            assertEquals("student", event.authorUsername());
+            assertEquals(Instant.parse("2024-03-01T10:00:00Z"), event.createdAt());
+            assertNull(event.ref());
+        }
+    }
+
+    private static <T> CompletableFuture<Integer> count(
+            Function<Consumer<T>, CompletableFuture<Void>> forEach) {
+        var count = new AtomicInteger();
+        return forEach.apply(e -> count.incrementAndGet()).thenApply(v -> count.get());
+    }
+}
@@ -0,0 +1,116 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.Cache.Key;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CacheTest {
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        var cache = new Cache<String>();
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("a", cache.update(new Key("a", null), () -> {
+                loads.incrementAndGet();
+                return "a";
+            }));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        var cache = new Cache<Integer>();
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> cache.update(new Key("k", 1), () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return 42;
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (var future : futures) {
+                assertEquals(42, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+        var cache = new Cache<String>(2, null);
+        var loads = new AtomicInteger();
+        cache.update(new Key("a", null), () -> "a" + loads.incrementAndGet());
+        cache.update(new Key("b", null), () -> "b" + loads.incrementAndGet());
+        cache.update(new Key("a", null), () -> "a" + loads.incrementAndGet()); // 'a' now most recent
+        cache.update(new Key("c", null), () -> "c" + loads.incrementAndGet()); // evicts 'b'
+        assertEquals("a1", cache.update(new Key("a", null), () -> "a" + loads.incrementAndGet()));
+        assertEquals("b4", cache.update(new Key("b", null), () -> "b" + loads.incrementAndGet()));
+        assertEquals(2, cache.stats().evictions());
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        var now = new AtomicLong();
+        var cache = new Cache<Integer>(10, Duration.ofMinutes(5), now::get);
+        var loads = new AtomicInteger();
+        cache.update(new Key("a", null), loads::incrementAndGet);
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        assertEquals(1, cache.update(new Key("a", null), loads::incrementAndGet));
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertEquals(2, cache.update(new Key("a", null), loads::incrementAndGet));
+    }
+
+    @Test
+    public void testEntryExpiry() throws Exception {
+        var now = new AtomicLong();
+        var cache = new Cache<Integer>(10, Duration.ofMinutes(5), now::get);
+        var loads = new AtomicInteger();
+        cache.update(new Key("a", null), Duration.ofMinutes(1), loads::incrementAndGet);
+        cache.update(new Key("b", null), Duration.ofMinutes(10), loads::incrementAndGet);
+        cache.update(new Key("c", null), loads::incrementAndGet);
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertEquals(4, cache.update(new Key("a", null), loads::incrementAndGet));
+        assertEquals(2, cache.update(new Key("b", null), loads::incrementAndGet));
+        assertEquals(3, cache.update(new Key("c", null), loads::incrementAndGet));
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        assertEquals(2, cache.update(new Key("b", null), loads::incrementAndGet));
+        assertEquals(5, cache.update(new Key("c", null), loads::incrementAndGet));
+    }
+
+    @Test
+    public void testErrorNotCached() throws Exception {
+        var cache = new Cache<String>();
+        var key = new Key("a", null);
+        assertThrows(StackOverflowError.class, () -> cache.update(key, () -> {
+            throw new StackOverflowError();
+        }));
+        // the failed load must not block later callers
+        assertEquals("a", cache.update(key, () -> "a"));
+    }
+}
@@ -0,0 +1,1027 @@
+package ch.trick17.gitlabtools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor.PathEdit;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.PacketLineOut;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.RefAdvertiser.PacketLineOutRefAdvertiser;
+import org.eclipse.jgit.transport.UploadPack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static org.eclipse.jgit.lib.Constants.HEAD;
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.eclipse.jgit.lib.Constants.OBJ_COMMIT;
+import static org.eclipse.jgit.lib.Constants.R_HEADS;
+
+/**
+ * An in-process stand-in for a GitLab server, for testing and benchmarking
+ * commands with large groups without a real GitLab instance. It implements
+ * the parts of the REST API (v4) used by the commands and the smart HTTP
+ * protocol for Git, with all data (including the repositories) kept in
+ * memory. Authentication is not checked.
+ * <p>
+ * Latency, server errors and rate limiting (429) can be injected, to test
+ * and measure the behavior of commands under realistic conditions. Injected
+ * errors are random, but reproducible for a given seed (as long as requests
+ * are sent in the same order).
+ * <p>
+ * The {@link #main(String[])} method starts a server with a generated group,
+ * which can be used to run commands manually.
+ */
+public class FakeGitLab implements AutoCloseable {
+
+    private static final String API = "/api/v4/";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor = newCachedThreadPool();
+    private final String url;
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile double errorRate = 0;
+    private volatile double rateLimitRate = 0;
+    private volatile double lostResponseRate = 0;
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    // all data below is guarded by 'this'
+    private long nextId = 1;
+    private final Map<Long, FakeUser> users = new LinkedHashMap<>();
+    private final Map<Long, FakeGroup> groups = new LinkedHashMap<>();
+    private final Map<Long, FakeProject> projects = new LinkedHashMap<>();
+    private final FakeUser root;
+
+    public FakeGitLab() throws IOException {
+        this(0);
+    }
+
+    public FakeGitLab(long seed) throws IOException {
+        random = new Random(seed);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        root = addUser("root");
+    }
+
+    public String url() {
+        return url;
+    }
+
+    /**
+     * Delays every request (API or Git) by the given duration.
+     */
+    public FakeGitLab withLatency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Answers the given fraction of requests with a "500 Internal Server
+     * Error" response.
+     */
+    public FakeGitLab withErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Answers the given fraction of requests with a "429 Too Many Requests"
+     * response.
+     */
+    public FakeGitLab withRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = rateLimitRate;
+        return this;
+    }
+
+    /**
+     * Answers the given fraction of API requests that create something with
+     * a "504 Gateway Timeout" response, <em>after</em> applying them, as
+     * when the connection to GitLab times out.
+     */
+    public FakeGitLab withLostResponseRate(double lostResponseRate) {
+        this.lostResponseRate = lostResponseRate;
+        return this;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long injectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /* Data setup */
+
+    public synchronized FakeUser addUser(String username) {
+        var user = new FakeUser(nextId++, username);
+        users.put(user.id, user);
+        return user;
+    }
+
+    public synchronized FakeGroup addGroup(String path) {
+        var group = new FakeGroup(nextId++, path);
+        groups.put(group.id, group);
+        group.members.add(root);
+        return group;
+    }
+
+    /**
+     * Creates a group with the given number of projects, named
+     * <code>student0001</code>, <code>student0002</code>, etc. For each
+     * project, a user with the same name is created as well. Each project
+     * has an initial commit on the "main" branch, pushed by "root".
+     */
+    public synchronized FakeGroup generateGroup(String path, int projectCount) throws IOException {
+        var group = addGroup(path);
+        var start = Instant.parse("2024-01-01T08:00:00Z");
+        for (int i = 1; i <= projectCount; i++) {
+            var name = String.format("student%04d", i);
+            addUser(name);
+            var project = addProject(group, name);
+            commit(project, "main", Map.of("README.md", "# " + name + "\n"),
+                    "Initial commit", root, start.plusSeconds(i));
+        }
+        return group;
+    }
+
+    public synchronized FakeProject addProject(FakeGroup group, String name) {
+        var project = new FakeProject(nextId++, group, name);
+        projects.put(project.id, project);
+        group.projects.add(project);
+        return project;
+    }
+
+    public synchronized void deleteProject(FakeProject project) {
+        projects.remove(project.id);
+        project.group.projects.remove(project);
+    }
+
+    /**
+     * Commits the given files to the given branch of the given project (which
+     * is created if it does not exist yet) and records a corresponding push
+     * event by the given user at the given time. Returns the commit ID. If
+     * the user is <code>null</code>, the event has no author, like events of
+     * deleted users.
+     */
+    public synchronized String commit(FakeProject project, String branch, Map<String, String> files,
+                                      String message, FakeUser author, Instant time) throws IOException {
+        var repo = project.repo;
+        var ref = repo.exactRef(R_HEADS + branch);
+        var parent = ref == null ? null : ref.getObjectId();
+        ObjectId commitId;
+        try (var inserter = repo.newObjectInserter(); var reader = repo.newObjectReader();
+             var walk = new RevWalk(reader)) {
+            var index = parent == null
+                    ? DirCache.newInCore()
+                    : DirCache.read(reader, walk.parseCommit(parent).getTree());
+            var editor = index.editor();
+            for (var file : files.entrySet()) {
+                var blob = inserter.insert(OBJ_BLOB, file.getValue().getBytes(UTF_8));
+                editor.add(new PathEdit(file.getKey()) {
+                    public void apply(DirCacheEntry entry) {
+                        entry.setFileMode(FileMode.REGULAR_FILE);
+                        entry.setObjectId(blob);
+                    }
+                });
+            }
+            editor.finish();
+
+            var name = author == null ? "ghost" : author.username;
+            var ident = new PersonIdent(name, name + "@example.com",
+                    Date.from(time), TimeZone.getTimeZone("UTC"));
+            var builder = new CommitBuilder();
+            builder.setTreeId(index.writeTree(inserter));
+            if (parent != null) {
+                builder.setParentId(parent);
+            }
+            builder.setAuthor(ident);
+            builder.setCommitter(ident);
+            builder.setMessage(message);
+            commitId = inserter.insert(OBJ_COMMIT, builder.build());
+            inserter.flush();
+        }
+        var update = repo.updateRef(R_HEADS + branch);
+        update.setNewObjectId(commitId);
+        update.forceUpdate();
+        addPushEvent(project, branch, parent, commitId, author, time);
+        return commitId.name();
+    }
+
+    private void addPushEvent(FakeProject project, String branch, ObjectId from, ObjectId to,
+                              FakeUser author, Instant time) {
+        project.events.add(new FakeEvent(nextId++, branch,
+                from == null ? null : from.name(), to.name(), author, time));
+        project.lastActivity = time;
+    }
+
+    /**
+     * Adds a merge request with a single discussion consisting of the given
+     * notes (by "root") to the given project.
+     */
+    public synchronized FakeMergeRequest addMergeRequest(FakeProject project, String title,
+                                                         Instant time, String... notes) {
+        var request = new FakeMergeRequest(nextId++, project.mergeRequests.size() + 1,
+                title, "feature", "main", root, time);
+        for (var note : notes) {
+            request.notes.add(new FakeNote(nextId++, request.id, note, root, time));
+        }
+        project.mergeRequests.add(request);
+        return request;
+    }
+
+    /**
+     * Adds a note (by "root") in a discussion of its own to the given merge
+     * request.
+     */
+    public synchronized void addNote(FakeMergeRequest request, String note, Instant time) {
+        addNote(request, note, root, time);
+    }
+
+    /**
+     * Like {@link #addNote(FakeMergeRequest, String, Instant)}, but by the
+     * given author, which may be <code>null</code> (like in some notes
+     * imported from other systems).
+     */
+    public synchronized void addNote(FakeMergeRequest request, String note, FakeUser author, Instant time) {
+        request.notes.add(new FakeNote(nextId++, nextId++, note, author, time));
+    }
+
+    public synchronized FakeGroup group(String path) {
+        return groups.values().stream()
+                .filter(g -> g.path.equals(path))
+                .findFirst().orElse(null);
+    }
+
+    public synchronized FakeUser user(String username) {
+        return users.values().stream()
+                .filter(u -> u.username.equals(username))
+                .findFirst().orElse(null);
+    }
+
+    public static class FakeUser {
+        public final long id;
+        public final String username;
+
+        FakeUser(long id, String username) {
+            this.id = id;
+            this.username = username;
+        }
+    }
+
+    public static class FakeGroup {
+        public final long id;
+        public final String path;
+        public final List<FakeProject> projects = new ArrayList<>();
+        public final List<FakeUser> members = new ArrayList<>();
+
+        FakeGroup(long id, String path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    public static class FakeProject {
+        public final long id;
+        public final FakeGroup group;
+        public final String name;
+        public final InMemoryRepository repo;
+        public final List<FakeUser> members = new ArrayList<>();
+        public final Map<String, Integer> protectedBranches = new LinkedHashMap<>();
+        public final List<FakeEvent> events = new ArrayList<>();
+        public final List<FakeMergeRequest> mergeRequests = new ArrayList<>();
+        Instant lastActivity = Instant.EPOCH;
+
+        FakeProject(long id, FakeGroup group, String name) {
+            this.id = id;
+            this.group = group;
+            this.name = name;
+            repo = new InMemoryRepository(new DfsRepositoryDescription(name));
+            try {
+                repo.updateRef(HEAD).link(R_HEADS + "main");
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        String fullPath() {
+            return group.path + "/" + name;
+        }
+    }
+
+    public static class FakeEvent {
+        public final long id;
+        public final String ref;
+        public final String commitFrom;
+        public final String commitTo;
+        public final FakeUser author;
+        public final Instant time;
+
+        FakeEvent(long id, String ref, String commitFrom, String commitTo, FakeUser author, Instant time) {
+            this.id = id;
+            this.ref = ref;
+            this.commitFrom = commitFrom;
+            this.commitTo = commitTo;
+            this.author = author;
+            this.time = time;
+        }
+    }
+
+    public static class FakeMergeRequest {
+        public final long id;
+        public final long iid;
+        public final String title;
+        public final String sourceBranch;
+        public final String targetBranch;
+        public final FakeUser author;
+        public final Instant created;
+        public final List<FakeNote> notes = new ArrayList<>();
+
+        FakeMergeRequest(long id, long iid, String title, String sourceBranch, String targetBranch,
+                         FakeUser author, Instant created) {
+            this.id = id;
+            this.iid = iid;
+            this.title = title;
+            this.sourceBranch = sourceBranch;
+            this.targetBranch = targetBranch;
+            this.author = author;
+            this.created = created;
+        }
+    }
+
+    public static class FakeNote {
+        public final long id;
+        public final long discussion;
+        public final String body;
+        public final FakeUser author;
+        public final Instant created;
+
+        FakeNote(long id, long discussion, String body, FakeUser author, Instant created) {
+            this.id = id;
+            this.discussion = discussion;
+            this.body = body;
+            this.author = author;
+            this.created = created;
+        }
+    }
+
+    /* Request handling */
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (!latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+            double r;
+            synchronized (random) {
+                r = random.nextDouble();
+            }
+            if (r < errorRate) {
+                injectedErrors.incrementAndGet();
+                respond(exchange, 500, Map.of("message", "500 Internal Server Error"));
+                return;
+            } else if (r < errorRate + rateLimitRate) {
+                injectedErrors.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, Map.of("message", "429 Too Many Requests"));
+                return;
+            }
+
+            var path = exchange.getRequestURI().getRawPath();
+            if (path.startsWith(API)) {
+                handleApi(exchange, path.substring(API.length()));
+            } else {
+                handleGit(exchange, path.substring(1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ApiError e) {
+            respond(exchange, e.status, Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            respond(exchange, 500, Map.of("message", String.valueOf(e)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleApi(HttpExchange exchange, String rawPath) throws IOException {
+        var path = Arrays.stream(rawPath.split("/"))
+                .map(s -> URLDecoder.decode(s, UTF_8))
+                .collect(toList());
+        var params = params(exchange);
+        var method = exchange.getRequestMethod();
+        Object result;
+        int status;
+        synchronized (this) {
+            status = method.equals("POST") ? 201 : method.equals("DELETE") ? 204 : 200;
+            result = route(method, path, params);
+        }
+        if (method.equals("POST") && lostResponseRate > 0) {
+            double r;
+            synchronized (random) {
+                r = random.nextDouble();
+            }
+            if (r < lostResponseRate) {
+                injectedErrors.incrementAndGet();
+                respond(exchange, 504, Map.of("message", "504 Gateway Timeout"));
+                return;
+            }
+        }
+        if (result instanceof Page) {
+            var page = (Page) result;
+            var headers = exchange.getResponseHeaders();
+            headers.set("X-Page", String.valueOf(page.page));
+            headers.set("X-Per-Page", String.valueOf(page.perPage));
+            headers.set("X-Total", String.valueOf(page.total));
+            headers.set("X-Total-Pages", String.valueOf(page.totalPages));
+            headers.set("X-Next-Page", page.page < page.totalPages ? String.valueOf(page.page + 1) : "");
+            headers.set("X-Prev-Page", page.page > 1 ? String.valueOf(page.page - 1) : "");
+            result = page.items;
+        }
+        respond(exchange, status, result);
+    }
+
+    private Object route(String method, List<String> path, Map<String, String> params) throws IOException {
+        var resource = path.get(0);
+        if (method.equals("GET") && path.equals(List.of("user"))) {
+            return userJson(root);
+        } else if (resource.equals("users") && method.equals("GET")) {
+            if (path.size() == 2) {
+                return userJson(find(users, path.get(1)));
+            }
+            var username = params.get("username");
+            return page(users.values().stream()
+                    .filter(u -> username == null || u.username.equals(username))
+                    .map(this::userJson).collect(toList()), params);
+        } else if (resource.equals("groups") && path.size() >= 2) {
+            var group = findGroup(path.get(1));
+            if (path.size() == 2) {
+                return groupJson(group);
+            } else if (path.get(2).equals("projects")) {
+                var search = params.getOrDefault("search", "").toLowerCase();
+                var order = "last_activity_at".equals(params.get("order_by"))
+                        ? Comparator.<FakeProject, Instant>comparing(p -> p.lastActivity).reversed()
+                        : Comparator.<FakeProject>comparingLong(p -> 0);
+                return page(group.projects.stream()
+                        .filter(p -> p.name.toLowerCase().contains(search))
+                        .sorted(order)
+                        .map(this::projectJson).collect(toList()), params);
+            } else if (path.get(2).equals("members")) {
+                return page(group.members.stream().map(this::memberJson).collect(toList()), params);
+            } else if (path.get(2).equals("descendant_groups")) {
+                return page(groups.values().stream()
+                        .filter(g -> g.path.startsWith(group.path + "/"))
+                        .map(this::groupJson).collect(toList()), params);
+            }
+        } else if (resource.equals("projects")) {
+            if (path.size() == 1 && method.equals("POST")) {
+                var group = groups.get(Long.parseLong(params.get("namespace_id")));
+                if (group == null) {
+                    throw notFound();
+                }
+                return projectJson(addProject(group, params.get("name")));
+            }
+            return routeProject(method, findProject(path.get(1)), path.subList(2, path.size()), params);
+        }
+        throw notFound();
+    }
+
+    private Object routeProject(String method, FakeProject project, List<String> path,
+                                Map<String, String> params) throws IOException {
+        if (path.isEmpty()) {
+            return projectJson(project);
+        }
+        switch (path.get(0)) {
+            case "members":
+                if (method.equals("POST")) {
+                    var user = find(users, params.get("user_id"));
+                    if (project.members.contains(user)) {
+                        throw new ApiError(409, "Member already exists");
+                    }
+                    project.members.add(user);
+                    return memberJson(user);
+                }
+                return page(project.members.stream().map(this::memberJson).collect(toList()), params);
+            case "events":
+                var before = params.containsKey("before")
+                        ? LocalDate.parse(params.get("before").substring(0, 10)).atStartOfDay(ZoneOffset.UTC).toInstant()
+                        : Instant.MAX;
+                var after = params.containsKey("after")
+                        ? LocalDate.parse(params.get("after").substring(0, 10)).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()
+                        : Instant.MIN;
+                var events = project.events.stream()
+                        .filter(e -> e.time.isBefore(before) && !e.time.isBefore(after))
+                        .map(e -> eventJson(project, e))
+                        .collect(toList());
+                if (!"asc".equals(params.get("sort"))) {
+                    Collections.reverse(events);
+                }
+                return page(events, params);
+            case "protected_branches":
+                if (method.equals("POST")) {
+                    if (project.protectedBranches.containsKey(params.get("name"))) {
+                        throw new ApiError(409, "Protected branch '" + params.get("name") + "' already exists");
+                    }
+                    var level = Integer.parseInt(params.getOrDefault("push_access_level", "40"));
+                    project.protectedBranches.put(params.get("name"), level);
+                    return protectedBranchJson(params.get("name"), level);
+                } else if (method.equals("DELETE")) {
+                    project.protectedBranches.remove(path.get(1));
+                    return null;
+                } else if (path.size() > 1) {
+                    var level = project.protectedBranches.get(path.get(1));
+                    if (level == null) {
+                        throw notFound();
+                    }
+                    return protectedBranchJson(path.get(1), level);
+                }
+                return page(project.protectedBranches.entrySet().stream()
+                        .map(e -> protectedBranchJson(e.getKey(), e.getValue()))
+                        .collect(toList()), params);
+            case "repository":
+                return routeRepository(method, project, path.subList(1, path.size()), params);
+            case "merge_requests":
+                if (path.size() == 1 && method.equals("POST")) {
+                    if (project.mergeRequests.stream().anyMatch(m -> m.sourceBranch.equals(params.get("source_branch"))
+                            && m.targetBranch.equals(params.get("target_branch")))) {
+                        throw new ApiError(409, "Another open merge request already exists for this source branch");
+                    }
+                    var request = new FakeMergeRequest(nextId++, project.mergeRequests.size() + 1,
+                            params.get("title"), params.get("source_branch"),
+                            params.get("target_branch"), root, Instant.now());
+                    project.mergeRequests.add(request);
+                    return mergeRequestJson(project, request);
+                } else if (path.size() == 1) {
+                    return page(project.mergeRequests.stream()
+                            .filter(m -> matches(m, params))
+                            .map(m -> mergeRequestJson(project, m))
+                            .collect(toList()), params);
+                }
+                var request = project.mergeRequests.stream()
+                        .filter(m -> String.valueOf(m.iid).equals(path.get(1)))
+                        .findFirst().orElseThrow(FakeGitLab::notFound);
+                if (path.size() == 2) {
+                    return mergeRequestJson(project, request);
+                } else if (path.get(2).equals("discussions")) {
+                    var discussions = request.notes.stream()
+                            .collect(groupingBy(n -> n.discussion, LinkedHashMap::new, toList()));
+                    return page(discussions.entrySet().stream()
+                            .map(d -> discussionJson(d.getKey(), d.getValue()))
+                            .collect(toList()), params);
+                }
+                break;
+            default:
+        }
+        throw notFound();
+    }
+
+    private Object routeRepository(String method, FakeProject project, List<String> path,
+                                   Map<String, String> params) throws IOException {
+        var repo = project.repo;
+        switch (path.get(0)) {
+            case "branches":
+                if (method.equals("POST")) {
+                    var name = params.get("branch");
+                    var ref = repo.resolve(params.get("ref"));
+                    if (ref == null) {
+                        throw new ApiError(400, "Invalid reference name");
+                    } else if (repo.exactRef(R_HEADS + name) != null) {
+                        throw new ApiError(400, "Branch already exists");
+                    }
+                    var update = repo.updateRef(R_HEADS + name);
+                    update.setNewObjectId(ref);
+                    update.forceUpdate();
+                    return branchJson(project, name);
+                } else if (path.size() == 2) {
+                    if (repo.exactRef(R_HEADS + path.get(1)) == null) {
+                        throw notFound();
+                    }
+                    return branchJson(project, path.get(1));
+                }
+                var branches = new ArrayList<Object>();
+                for (var ref : repo.getRefDatabase().getRefsByPrefix(R_HEADS)) {
+                    branches.add(branchJson(project, ref.getName().substring(R_HEADS.length())));
+                }
+                return page(branches, params);
+            case "commits":
+                if (method.equals("POST")) {
+                    var payload = JSON.readTree(params.get(""));
+                    var files = new LinkedHashMap<String, String>();
+                    for (var action : payload.get("actions")) {
+                        files.put(action.get("file_path").asText(), action.path("content").asText(""));
+                    }
+                    var id = commit(project, payload.get("branch").asText(), files,
+                            payload.get("commit_message").asText(), root, Instant.now());
+                    return Map.of("id", id, "short_id", id.substring(0, 8),
+                            "message", payload.get("commit_message").asText());
+                }
+                break;
+            case "files":
+                var filePath = path.get(1);
+                if (method.equals("POST")) {
+                    var content = params.get("content");
+                    if (fileExists(repo, params.get("branch"), filePath)) {
+                        throw new ApiError(400, "A file with this name already exists");
+                    }
+                    if ("base64".equals(params.get("encoding"))) {
+                        content = new String(Base64.getDecoder().decode(content), UTF_8);
+                    }
+                    commit(project, params.get("branch"), Map.of(filePath, content),
+                            params.get("commit_message"), root, Instant.now());
+                    return Map.of("file_path", filePath, "branch", params.get("branch"));
+                }
+                var commit = repo.resolve(params.getOrDefault("ref", "main"));
+                if (commit == null) {
+                    throw notFound();
+                }
+                try (var walk = new RevWalk(repo)) {
+                    var tree = walk.parseCommit(commit).getTree();
+                    var tw = org.eclipse.jgit.treewalk.TreeWalk.forPath(repo, filePath, tree);
+                    if (tw == null) {
+                        throw notFound();
+                    }
+                    var bytes = repo.open(tw.getObjectId(0)).getBytes();
+                    return Map.of(
+                            "file_name", filePath.substring(filePath.lastIndexOf('/') + 1),
+                            "file_path", filePath,
+                            "size", bytes.length,
+                            "encoding", "base64",
+                            "content", Base64.getEncoder().encodeToString(bytes),
+                            "ref", params.getOrDefault("ref", "main"),
+                            "blob_id", tw.getObjectId(0).name(),
+                            "commit_id", commit.name());
+                }
+            default:
+        }
+        throw notFound();
+    }
+
+    private static boolean fileExists(InMemoryRepository repo, String branch, String path) throws IOException {
+        var commit = repo.resolve(branch);
+        if (commit == null) {
+            return false;
+        }
+        try (var walk = new RevWalk(repo)) {
+            var tree = walk.parseCommit(commit).getTree();
+            return org.eclipse.jgit.treewalk.TreeWalk.forPath(repo, path, tree) != null;
+        }
+    }
+
+    private static boolean matches(FakeMergeRequest request, Map<String, String> params) {
+        var state = params.getOrDefault("state", "all");
+        if (!state.equals("all") && !state.equals("opened")) {
+            return false;
+        }
+        if (params.containsKey("created_after")
+                && request.created.isBefore(Instant.parse(params.get("created_after")))) {
+            return false;
+        }
+        if (params.containsKey("created_before")
+                && request.created.isAfter(Instant.parse(params.get("created_before")))) {
+            return false;
+        }
+        // inclusive, like in GitLab
+        if (params.containsKey("updated_after")
+                && lastUpdate(request).isBefore(Instant.parse(params.get("updated_after")))) {
+            return false;
+        }
+        if (params.containsKey("source_branch") && !request.sourceBranch.equals(params.get("source_branch"))
+                || params.containsKey("target_branch") && !request.targetBranch.equals(params.get("target_branch"))) {
+            return false;
+        }
+        var search = params.get("search");
+        return search == null || request.title.toLowerCase().contains(search.toLowerCase());
+    }
+
+    private static Instant lastUpdate(FakeMergeRequest request) {
+        return request.notes.stream()
+                .map(n -> n.created)
+                .max(Comparator.naturalOrder())
+                .orElse(request.created);
+    }
+
+    private FakeGroup findGroup(String idOrPath) {
+        var group = idOrPath.matches("\\d+")
+                ? groups.get(Long.parseLong(idOrPath))
+                : group(idOrPath);
+        if (group == null) {
+            throw notFound();
+        }
+        return group;
+    }
+
+    private FakeProject findProject(String idOrPath) {
+        var project = idOrPath.matches("\\d+")
+                ? projects.get(Long.parseLong(idOrPath))
+                : projects.values().stream()
+                        .filter(p -> p.fullPath().equals(idOrPath))
+                        .findFirst().orElse(null);
+        if (project == null) {
+            throw notFound();
+        }
+        return project;
+    }
+
+    private static <T> T find(Map<Long, T> map, String id) {
+        var value = id == null ? null : map.get(Long.parseLong(id));
+        if (value == null) {
+            throw notFound();
+        }
+        return value;
+    }
+
+    /* JSON representations */
+
+    private Object userJson(FakeUser user) {
+        return Map.of("id", user.id, "username", user.username, "name", user.username,
+                "state", "active", "email", user.username + "@example.com");
+    }
+
+    private Object memberJson(FakeUser user) {
+        return Map.of("id", user.id, "username", user.username, "name", user.username,
+                "state", "active", "access_level", 30);
+    }
+
+    private Object groupJson(FakeGroup group) {
+        return Map.of("id", group.id, "name", group.path, "path", group.path,
+                "full_path", group.path, "visibility", "private");
+    }
+
+    private Object projectJson(FakeProject project) {
+        var webUrl = url + "/" + project.fullPath();
+        return Map.of(
+                "id", project.id,
+                "name", project.name,
+                "path", project.name,
+                "path_with_namespace", project.fullPath(),
+                "default_branch", "main",
+                "web_url", webUrl,
+                "http_url_to_repo", webUrl + ".git",
+                "last_activity_at", date(project.lastActivity),
+                "namespace", Map.of("id", project.group.id, "path", project.group.path,
+                        "full_path", project.group.path, "kind", "group"));
+    }
+
+    private Object eventJson(FakeProject project, FakeEvent event) {
+        var pushData = new LinkedHashMap<String, Object>();
+        pushData.put("commit_count", 1);
+        pushData.put("action", "pushed");
+        pushData.put("ref_type", "branch");
+        pushData.put("commit_from", event.commitFrom);
+        pushData.put("commit_to", event.commitTo);
+        pushData.put("ref", event.ref);
+        var json = new LinkedHashMap<String, Object>();
+        json.put("id", event.id);
+        json.put("project_id", project.id);
+        json.put("action_name", "pushed to");
+        // events of deleted users have no author
+        json.put("author_id", event.author == null ? null : event.author.id);
+        json.put("author_username", event.author == null ? null : event.author.username);
+        json.put("created_at", date(event.time));
+        json.put("push_data", pushData);
+        return json;
+    }
+
+    private Object protectedBranchJson(String name, int level) {
+        var levels = List.of(Map.of("access_level", level));
+        return Map.of("name", name, "push_access_levels", levels, "merge_access_levels", levels);
+    }
+
+    private Object branchJson(FakeProject project, String name) throws IOException {
+        var commit = project.repo.exactRef(R_HEADS + name).getObjectId().name();
+        return Map.of("name", name, "default", name.equals("main"),
+                "protected", project.protectedBranches.containsKey(name),
+                "commit", Map.of("id", commit));
+    }
+
+    private Object mergeRequestJson(FakeProject project, FakeMergeRequest request) {
+        return Map.of(
+                "id", request.id,
+                "iid", request.iid,
+                "project_id", project.id,
+                "title", request.title,
+                "state", "opened",
+                "source_branch", request.sourceBranch,
+                "target_branch", request.targetBranch,
+                "author", userJson(request.author),
+                "created_at", date(request.created),
+                "updated_at", date(lastUpdate(request)));
+    }
+
+    private Object discussionJson(long id, List<FakeNote> discussion) {
+        var notes = discussion.stream()
+                .map(n -> {
+                    var json = new LinkedHashMap<String, Object>();
+                    json.put("id", n.id);
+                    json.put("body", n.body);
+                    json.put("author", n.author == null ? null : userJson(n.author));
+                    json.put("created_at", date(n.created));
+                    json.put("system", false);
+                    json.put("noteable_type", "MergeRequest");
+                    return json;
+                })
+                .collect(toList());
+        return Map.of("id", "d" + id, "individual_note", notes.size() == 1, "notes", notes);
+    }
+
+    private static String date(Instant instant) {
+        return instant.toString();
+    }
+
+    private static Page page(List<?> items, Map<String, String> params) {
+        var perPage = Integer.parseInt(params.getOrDefault("per_page", "20"));
+        var page = Integer.parseInt(params.getOrDefault("page", "1"));
+        var totalPages = Math.max(1, (items.size() + perPage - 1) / perPage);
+        var from = Math.min(items.size(), (page - 1) * perPage);
+        var to = Math.min(items.size(), from + perPage);
+        return new Page(items.subList(from, to), page, perPage, items.size(), totalPages);
+    }
+
+    private record Page(List<?> items, int page, int perPage, int total, int totalPages) {}
+
+    private static class ApiError extends RuntimeException {
+        final int status;
+
+        ApiError(int status, String message) {
+            super(status + " " + message);
+            this.status = status;
+        }
+    }
+
+    private static ApiError notFound() {
+        return new ApiError(404, "Not found");
+    }
+
+    /**
+     * Collects query, form and JSON parameters. A JSON body is stored under
+     * the empty key.
+     */
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        var params = new HashMap<String, String>();
+        parseQuery(exchange.getRequestURI().getRawQuery(), params);
+        var body = new String(exchange.getRequestBody().readAllBytes(), UTF_8);
+        var type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && type.startsWith("application/json")) {
+            params.put("", body);
+        } else if (!body.isEmpty()) {
+            parseQuery(body, params);
+        }
+        return params;
+    }
+
+    private static void parseQuery(String query, Map<String, String> params) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        for (var pair : query.split("&")) {
+            var parts = pair.split("=", 2);
+            params.put(URLDecoder.decode(parts[0], UTF_8),
+                    parts.length > 1 ? URLDecoder.decode(parts[1], UTF_8) : "");
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null || status == 204) {
+            exchange.sendResponseHeaders(status == 204 ? 204 : status, -1);
+            return;
+        }
+        var bytes = JSON.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /* Git smart HTTP protocol */
+
+    private void handleGit(HttpExchange exchange, String path) throws IOException {
+        String service;
+        String repoPath;
+        var advertisement = path.endsWith("/info/refs");
+        if (advertisement) {
+            repoPath = path.substring(0, path.length() - "/info/refs".length());
+            var query = new HashMap<String, String>();
+            parseQuery(exchange.getRequestURI().getRawQuery(), query);
+            service = query.get("service");
+        } else if (path.endsWith("/git-upload-pack") || path.endsWith("/git-receive-pack")) {
+            var slash = path.lastIndexOf('/');
+            repoPath = path.substring(0, slash);
+            service = path.substring(slash + 1);
+        } else {
+            throw notFound();
+        }
+        repoPath = URLDecoder.decode(repoPath.replaceAll("\\.git$", ""), UTF_8);
+        FakeProject project;
+        synchronized (this) {
+            project = findProject(repoPath);
+        }
+        if (!"git-upload-pack".equals(service) && !"git-receive-pack".equals(service)) {
+            throw notFound();
+        }
+
+        var headers = exchange.getResponseHeaders();
+        headers.set("Cache-Control", "no-cache");
+        if (advertisement) {
+            headers.set("Content-Type", "application/x-" + service + "-advertisement");
+            exchange.sendResponseHeaders(200, 0);
+            var out = new PacketLineOut(exchange.getResponseBody());
+            out.writeString("# service=" + service + "\n");
+            out.end();
+            var advertiser = new PacketLineOutRefAdvertiser(out);
+            if (service.equals("git-upload-pack")) {
+                var pack = new UploadPack(project.repo);
+                pack.setBiDirectionalPipe(false);
+                pack.sendAdvertisedRefs(advertiser);
+            } else {
+                var pack = receivePack(project);
+                pack.sendAdvertisedRefs(advertiser);
+            }
+        } else {
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                in = new GZIPInputStream(in);
+            }
+            headers.set("Content-Type", "application/x-" + service + "-result");
+            exchange.sendResponseHeaders(200, 0);
+            if (service.equals("git-upload-pack")) {
+                var pack = new UploadPack(project.repo);
+                pack.setBiDirectionalPipe(false);
+                pack.upload(in, exchange.getResponseBody(), null);
+            } else {
+                receivePack(project).receive(in, exchange.getResponseBody(), null);
+            }
+        }
+    }
+
+    private ReceivePack receivePack(FakeProject project) {
+        var pack = new ReceivePack(project.repo);
+        pack.setBiDirectionalPipe(false);
+        pack.setPostReceiveHook((rp, commands) -> {
+            synchronized (this) {
+                for (var command : commands) {
+                    if (command.getResult() == ReceiveCommand.Result.OK
+                            && command.getRefName().startsWith(R_HEADS)
+                            && command.getType() != ReceiveCommand.Type.DELETE) {
+                        var from = command.getOldId().equals(ObjectId.zeroId()) ? null : command.getOldId();
+                        addPushEvent(project, command.getRefName().substring(R_HEADS.length()),
+                                from, command.getNewId(), root, Instant.now());
+                    }
+                }
+            }
+        });
+        return pack;
+    }
+
+    /**
+     * Starts a server with a generated group of the given size (first
+     * argument, default 1000) and runs until killed. A token file is not
+     * needed for the server, but the commands require one with any content.
+     */
+    public static void main(String[] args) throws IOException {
+        var size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        var gitlab = new FakeGitLab();
+        if (args.length > 1) {
+            gitlab.withLatency(Duration.ofMillis(Long.parseLong(args[1])));
+        }
+        gitlab.generateGroup("course", size);
+        System.out.println("Fake GitLab with group 'course' (" + size + " projects) running at " + gitlab.url());
+    }
+}
@@ -1,11 +1,9 @@
 package ch.trick17.gitlabtools;
 
-import ch.trick17.gitlabtools.auth.AuthenticationException;
-import ch.trick17.gitlabtools.auth.TokenCreationException;
-import ch.trick17.gitlabtools.auth.TokenCreator;
 import org.gitlab4j.api.GitLabApi;
 import org.gitlab4j.api.GitLabApiException;
 import org.gitlab4j.api.models.Group;
+import org.gitlab4j.api.models.ImpersonationToken.Scope;
 import org.junit.jupiter.api.BeforeEach;
 
 import java.io.IOException;
@@ -41,11 +39,14 @@ public class GitLabApiIntegrationTest extends GitLabIntegrationTest {
     }
 
     private static void createToken() {
-        try {
-            var creator = new TokenCreator(URL);
-            token = creator.createAccessToken(USER, PASSWORD, "gitlab-tools-it");
+        // log in with OAuth instead of using the TokenCreator, which is in
+        // the auth module
+        try (var oauthApi = GitLabApi.oauth2Login(URL, USER, PASSWORD)) {
+            var user = oauthApi.getUserApi().getCurrentUser();
+            token = oauthApi.getUserApi().createPersonalAccessToken(user.getId(),
+                    "gitlab-tools-it", null, new Scope[] {Scope.API}).getToken();
             tokenFile = writeTempTextFile("token", token);
-        } catch (TokenCreationException | AuthenticationException e) {
+        } catch (GitLabApiException e) {
             throw new RuntimeException(e);
         }
     }
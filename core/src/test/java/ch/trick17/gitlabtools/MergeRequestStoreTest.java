@@ -0,0 +1,52 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.MergeRequestStore.StoredNote;
+import org.gitlab4j.api.GitLabApi;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MergeRequestStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testIncrementalSync() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var project = gitlab.generateGroup("course", 1).projects.get(0);
+            var time = Instant.parse("2024-03-01T10:00:00Z");
+            var review = gitlab.addMergeRequest(project, "Review", time, "Grade: 5", "Well done");
+            gitlab.addMergeRequest(project, "Bonus", time.plusSeconds(60), "Bonus: 1");
+            var api = new GitLabApi(gitlab.url(), "token");
+
+            // first sync: merge requests and their notes
+            var reqs = new MergeRequestStore(api, tempDir).sync(project.id);
+            assertEquals(2, reqs.size());
+            assertEquals("Review", reqs.get(0).title());
+            assertEquals(List.of(new StoredNote("root", "Grade: 5"), new StoredNote("root", "Well done")),
+                    reqs.get(0).notes());
+            assertEquals(List.of(new StoredNote("root", "Bonus: 1")), reqs.get(1).notes());
+
+            // nothing changed: only the list of updated merge requests is
+            // fetched, the rest comes from the file (with a new store)
+            var requests = gitlab.requestCount();
+            assertEquals(reqs, new MergeRequestStore(api, tempDir).sync(project.id));
+            assertEquals(1, gitlab.requestCount() - requests);
+
+            // new note: only the updated merge request is fetched again
+            gitlab.addNote(review, "Grade: 6", time.plusSeconds(120));
+            requests = gitlab.requestCount();
+            var updated = new MergeRequestStore(api, tempDir).sync(project.id);
+            assertEquals(2, gitlab.requestCount() - requests);
+            assertEquals(3, updated.get(0).notes().size());
+            assertEquals("Grade: 6", updated.get(0).notes().get(2).body());
+            assertEquals(reqs.get(1), updated.get(1));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ch.trick17.gitlabtools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MultiPatternMatcherTest {
+
+    @Test
+    public void testEntireMatch() {
+        var matcher = new MultiPatternMatcher(List.of("\\d+ Punkte", "[A-F] bestanden"));
+        assertEquals(List.of("3 Punkte", "12 Punkte", "B bestanden"),
+                matcher.extract("3 Punkte, B bestanden, 12 Punkte"));
+    }
+
+    @Test
+    public void testGroupsAttributedToPattern() {
+        var matcher = new MultiPatternMatcher(List.of(
+                "Punkte: (\\d+)/(\\d+)", "Note: ([\\d.]+)", "(?i)bonus"));
+        assertEquals(List.of("4", "5", "2", "6", "5.5", "Bonus"),
+                matcher.extract("Punkte: 4/5\nNote: 5.5\nBonus\nPunkte: 2/6"));
+    }
+
+    @Test
+    public void testInlineFlagsScopedToPattern() {
+        var matcher = new MultiPatternMatcher(List.of("(?i)a", "b"));
+        assertEquals(List.of("A"), matcher.extract("AB"));
+    }
+
+    @Test
+    public void testOverlap() {
+        // the earlier match wins, regardless of the order of the patterns
+        assertEquals(List.of("ab"), new MultiPatternMatcher(List.of("b+", "ab")).extract("ab"));
+        assertEquals(List.of("ab"), new MultiPatternMatcher(List.of("ab", "b+")).extract("ab"));
+        // at the same position, the pattern that comes first wins
+        assertEquals(List.of("a"), new MultiPatternMatcher(List.of("a", "ab")).extract("ab"));
+        assertEquals(List.of("ab"), new MultiPatternMatcher(List.of("ab", "a")).extract("ab"));
+        // matching continues after the end of a match
+        assertEquals(List.of("b", "ab"), new MultiPatternMatcher(List.of("b+", "ab")).extract("ab b"));
+    }
+
+    @Test
+    public void testBackreference() {
+        var matcher = new MultiPatternMatcher(List.of("(\\d)", "(x)\\1"));
+        assertEquals(List.of("1", "2", "x"), matcher.extract("1 xx 2"));
+    }
+
+    @Test
+    public void testDuplicateGroupNames() {
+        var matcher = new MultiPatternMatcher(List.of("(?<n>\\d)", "(?<n>[a-z])"));
+        assertEquals(List.of("1", "2", "a"), matcher.extract("1 a 2"));
+    }
+}
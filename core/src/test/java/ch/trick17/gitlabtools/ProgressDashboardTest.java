@@ -0,0 +1,54 @@
+package ch.trick17.gitlabtools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProgressDashboardTest {
+
+    @Test
+    public void testDashboard() throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        var out = new PrintStream(bytes, true, UTF_8);
+        var dashboard = new ProgressDashboard(out, 4).usingChar("failed", 'X');
+
+        dashboard.started("lisa");
+        dashboard.started("bart");
+        Thread.sleep(300);
+        assertTrue(bytes.toString(UTF_8).contains("in progress (2): lisa, bart"));
+
+        dashboard.advance();
+        dashboard.finished("lisa");
+        dashboard.advance("failed");
+        dashboard.message("Problem with bart");
+        dashboard.finished("bart");
+        Thread.sleep(300);
+        var output = bytes.toString(UTF_8);
+        assertTrue(output.contains("2/4  50%"));
+        assertTrue(output.contains("1 successful, 1 failed"));
+        assertTrue(output.contains("Problem with bart"));
+
+        dashboard.printSummary();
+        output = bytes.toString(UTF_8);
+        assertTrue(output.endsWith("\033[JDone. 1 successful, 1 failed.\n"));
+        assertEquals(1, output.split("Problem with bart", -1).length - 1); // printed once
+    }
+
+    @Test
+    public void testCompactMessages() {
+        var bytes = new ByteArrayOutputStream();
+        var tracker = new ProgressTracker(new PrintStream(bytes, true, UTF_8), 10);
+        tracker.message("Starting...");
+        tracker.advance();
+        tracker.message("Error!");
+        tracker.advance();
+        tracker.printSummary();
+        assertEquals("Starting...\n.\nError!\n..\nDone. 2 successful.\n",
+                bytes.toString(UTF_8).replace(System.lineSeparator(), "\n"));
+    }
+}
@@ -0,0 +1,104 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.ProjectRoster.RosterProject;
+import org.gitlab4j.api.GitLabApi;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProjectRosterTest {
+
+    private static final RetryPolicy.Listener SILENT = new RetryPolicy.Listener() {
+        public void retrying(String description, Exception e, int attemptsLeft, Duration delay) {}
+
+        public void circuitOpened(Duration pause) {}
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testIncrementalSync() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var group = gitlab.generateGroup("course", 250);
+            var roster = new ProjectRoster(new GitLabApi(gitlab.url(), "token"), tempDir, 100,
+                    new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT));
+
+            assertEquals(250, roster.sync("course", null).size());
+
+            // nothing changed: only the first page is fetched
+            var requests = gitlab.requestCount();
+            assertEquals(250, roster.sync("course", null).size());
+            assertEquals(1, gitlab.requestCount() - requests);
+
+            // activity: still one request, but the project is updated
+            var project = group.projects.get(42);
+            var time = Instant.parse("2024-06-01T12:00:00Z");
+            gitlab.commit(project, "main", Map.of("Main.java", "class Main {}"), "Submit",
+                    gitlab.user(project.name), time);
+            requests = gitlab.requestCount();
+            var projects = roster.sync("course", null);
+            assertEquals(1, gitlab.requestCount() - requests);
+            assertEquals(time, find(projects, project.id).lastActivityAt().toInstant());
+
+            // deleted project: count check triggers a rebuild
+            gitlab.deleteProject(group.projects.get(0));
+            projects = roster.sync("course", null);
+            assertEquals(249, projects.size());
+            assertFalse(projects.stream().anyMatch(p -> p.name().equals("student0001")));
+
+            // new project without activity since the last sync: same
+            gitlab.addProject(group, "late-student");
+            projects = roster.sync("course", null);
+            assertEquals(250, projects.size());
+            assertTrue(projects.stream().anyMatch(p -> p.name().equals("late-student")));
+        }
+    }
+
+    @Test
+    public void testDailyRebuild() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var group = gitlab.generateGroup("course", 10);
+            var now = new AtomicReference<>(Instant.parse("2024-06-01T12:00:00Z"));
+            var roster = new ProjectRoster(new GitLabApi(gitlab.url(), "token"), tempDir, 100,
+                    new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT), now::get);
+            assertEquals(10, roster.sync("course", null).size());
+
+            // deleted project and project without recent activity (e.g., moved
+            // into the group): the count still matches...
+            gitlab.deleteProject(group.projects.get(0));
+            gitlab.addProject(group, "moved-in");
+            now.set(now.get().plus(Duration.ofHours(12)));
+            var requests = gitlab.requestCount();
+            var projects = roster.sync("course", null);
+            assertEquals(1, gitlab.requestCount() - requests);
+            assertTrue(projects.stream().anyMatch(p -> p.name().equals("student0001")));
+
+            // ...so the change is only noticed by the daily rebuild
+            now.set(now.get().plus(Duration.ofHours(13)));
+            projects = roster.sync("course", null);
+            assertEquals(10, projects.size());
+            assertFalse(projects.stream().anyMatch(p -> p.name().equals("student0001")));
+            assertTrue(projects.stream().anyMatch(p -> p.name().equals("moved-in")));
+
+            // and the rebuild counts as fresh again
+            requests = gitlab.requestCount();
+            roster.sync("course", null);
+            assertEquals(1, gitlab.requestCount() - requests);
+        }
+    }
+
+    private static RosterProject find(List<RosterProject> projects, long id) {
+        return projects.stream().filter(p -> p.id() == id).findFirst().orElseThrow();
+    }
+}
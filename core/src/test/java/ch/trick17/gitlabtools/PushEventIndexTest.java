@@ -0,0 +1,103 @@
+package ch.trick17.gitlabtools;
+
+import org.gitlab4j.api.GitLabApi;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PushEventIndexTest {
+
+    private static final RetryPolicy.Listener SILENT = new RetryPolicy.Listener() {
+        public void retrying(String description, Exception e, int attemptsLeft, Duration delay) {}
+
+        public void circuitOpened(Duration pause) {}
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testLookupAndIncrementalSync() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var project = gitlab.generateGroup("course", 1).projects.get(0);
+            var student = gitlab.user(project.name);
+            var first = commit(gitlab, project, "main", student, "2024-02-01T12:00:00Z");
+            commit(gitlab, project, "dev", student, "2024-02-05T12:00:00Z");
+            var ghost = commit(gitlab, project, "main", null, "2024-02-10T12:00:00Z");
+            var api = new GitLabApi(gitlab.url(), "token");
+
+            var index = newIndex(api, tempDir);
+            var id = project.id;
+            assertEquals(first, index.lastPushedCommit(id, "main", at("2024-02-09T00:00:00Z"), a -> true, null));
+            assertEquals(ghost, index.lastPushedCommit(id, "main", at("2024-02-11T00:00:00Z"), a -> true, null));
+            assertEquals(first, index.lastPushedCommit(id, "main", at("2024-02-11T00:00:00Z"),
+                    project.name::equals, null));
+            assertNull(index.lastPushedCommit(id, "dev", at("2024-02-04T00:00:00Z"), a -> true, null));
+
+            // read back from the file: nothing new, so only one request; the
+            // missing author is still missing
+            var requests = gitlab.requestCount();
+            index = newIndex(api, tempDir);
+            assertEquals(ghost, index.lastPushedCommit(id, "main", at("2024-02-11T00:00:00Z"),
+                    Objects::isNull, null));
+            assertEquals(1, gitlab.requestCount() - requests);
+            assertFalse(Files.readString(tempDir.resolve(id + ".tsv")).contains("null"));
+
+            // new push: only the events since the last sync are fetched
+            var latest = commit(gitlab, project, "main", student, "2024-02-20T12:00:00Z");
+            requests = gitlab.requestCount();
+            index = newIndex(api, tempDir);
+            assertEquals(latest, index.lastPushedCommit(id, "main", at("2024-03-01T00:00:00Z"), a -> true, null));
+            assertEquals(first, index.lastPushedCommit(id, "main", at("2024-02-09T00:00:00Z"), a -> true, null));
+            assertEquals(1, gitlab.requestCount() - requests);
+        }
+    }
+
+    @Test
+    public void testRebuildForEarlierStart() throws Exception {
+        try (var gitlab = new FakeGitLab()) {
+            var project = gitlab.generateGroup("course", 1).projects.get(0);
+            var student = gitlab.user(project.name);
+            var first = commit(gitlab, project, "main", student, "2024-02-01T12:00:00Z");
+            var second = commit(gitlab, project, "main", student, "2024-02-10T12:00:00Z");
+            var api = new GitLabApi(gitlab.url(), "token");
+            var id = project.id;
+
+            // index only reaches back to the given start...
+            var start = at("2024-02-05T00:00:00Z");
+            var index = newIndex(api, tempDir);
+            assertEquals(second, index.lastPushedCommit(id, "main", at("2024-02-11T00:00:00Z"), a -> true, start));
+            assertNull(index.lastPushedCommit(id, "main", at("2024-02-09T00:00:00Z"), a -> true, start));
+
+            // ...so it is rebuilt for an earlier one
+            index = newIndex(api, tempDir);
+            assertEquals(first, index.lastPushedCommit(id, "main", at("2024-02-09T00:00:00Z"), a -> true,
+                    at("2024-01-15T00:00:00Z")));
+        }
+    }
+
+    private static PushEventIndex newIndex(GitLabApi api, Path dir) {
+        return new PushEventIndex(api.getEventsApi(), dir, 100,
+                new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT));
+    }
+
+    private static String commit(FakeGitLab gitlab, FakeGitLab.FakeProject project, String branch,
+                                 FakeGitLab.FakeUser author, String time) throws Exception {
+        return gitlab.commit(project, branch, Map.of("Main.java", "class Main { /* " + time + " */ }"),
+                "Commit", author, at(time));
+    }
+
+    private static Instant at(String instant) {
+        return Instant.parse(instant);
+    }
+}
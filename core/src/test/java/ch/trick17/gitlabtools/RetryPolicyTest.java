@@ -0,0 +1,120 @@
+package ch.trick17.gitlabtools;
+
+import org.gitlab4j.api.GitLabApiException;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryPolicyTest {
+
+    private static final RetryPolicy.Listener SILENT = new RetryPolicy.Listener() {
+        public void retrying(String description, Exception e, int attemptsLeft, Duration delay) {}
+
+        public void circuitOpened(Duration pause) {}
+    };
+
+    @Test
+    public void testRetryUntilSuccess() throws Exception {
+        var retry = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+        var calls = new AtomicInteger();
+        var result = retry.call("test", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new GitLabApiException("unavailable", 503);
+            }
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testRetryAsync() {
+        var retry = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+        var calls = new AtomicInteger();
+        var result = retry.callAsync("test", () -> calls.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new GitLabApiException("unavailable", 503))
+                : CompletableFuture.completedFuture("ok"));
+        assertEquals("ok", result.join());
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        var failed = retry.callAsync("test", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new GitLabApiException("not found", 404));
+        });
+        var e = assertThrows(CompletionException.class, failed::join);
+        assertEquals(404, ((GitLabApiException) e.getCause()).getHttpStatus());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testGiveUp() {
+        var retry = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+        var calls = new AtomicInteger();
+        assertThrows(GitLabApiException.class, () -> retry.call("test", () -> {
+            calls.incrementAndGet();
+            throw new GitLabApiException("too many requests", 429);
+        }));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testNonRetryable() {
+        var retry = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+        var calls = new AtomicInteger();
+        assertThrows(GitLabApiException.class, () -> retry.call("test", () -> {
+            calls.incrementAndGet();
+            throw new GitLabApiException("not found", 404);
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testCallCreate() throws Exception {
+        var retry = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), SILENT);
+
+        // applied, but the response got lost: the retry finds the object
+        var calls = new AtomicInteger();
+        var result = retry.callCreate("test", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new GitLabApiException("gateway timeout", 504);
+            }
+            throw new GitLabApiException("already exists", 409);
+        }, () -> Optional.of("existing"));
+        assertEquals("existing", result);
+        assertEquals(2, calls.get());
+
+        // existed before: reported as usual
+        assertThrows(GitLabApiException.class, () -> retry.callCreate("test", () -> {
+            throw new GitLabApiException("already exists", 409);
+        }, () -> Optional.of("existing")));
+
+        // rate limited requests are not applied, so it existed before, too
+        calls.set(0);
+        assertThrows(GitLabApiException.class, () -> retry.callCreate("test", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new GitLabApiException("too many requests", 429);
+            }
+            throw new GitLabApiException("already exists", 409);
+        }, () -> Optional.of("existing")));
+    }
+
+    @Test
+    public void testIsRetryable() {
+        assertTrue(RetryPolicy.isRetryable(new GitLabApiException("", 500)));
+        assertTrue(RetryPolicy.isRetryable(new GitLabApiException(new SocketTimeoutException())));
+        assertTrue(RetryPolicy.isRetryable(new RuntimeException(new GitLabApiException("", 502))));
+        assertFalse(RetryPolicy.isRetryable(new GitLabApiException("", 403)));
+        assertFalse(RetryPolicy.isRetryable(new IllegalStateException()));
+    }
+}
@@ -0,0 +1,84 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.cmd.ExtractFromMergeRequestsCmd;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionRecorderTest {
+
+    private static final String TOKEN = "secret-token-1234";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        var session = tempDir.resolve("session.jsonl.gz");
+        var recorded = tempDir.resolve("recorded.csv");
+        var replayed = tempDir.resolve("replayed.csv");
+
+        try (var gitlab = new FakeGitLab()) {
+            var group = gitlab.generateGroup("course", 120);
+            var time = Instant.parse("2024-03-01T10:00:00Z");
+            for (var project : group.projects.subList(0, 30)) {
+                gitlab.addMergeRequest(project, "Review", time,
+                        "Grade: 5", "Looks good, " + TOKEN);
+            }
+            new ExtractFromMergeRequestsCmd(args(gitlab.url(),
+                    "--record", session.toString(),
+                    "--output", recorded.toString())).execute();
+        }
+
+        // server is gone now
+        new ExtractFromMergeRequestsCmd(args("http://localhost:1",
+                "--replay", session.toString(),
+                "--replayTimeScale", "0",
+                "--output", replayed.toString())).execute();
+
+        var expected = Files.readAllLines(recorded);
+        var actual = Files.readAllLines(replayed);
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(31, expected.size());
+        assertEquals(expected, actual);
+
+        String content;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(session))) {
+            content = new String(in.readAllBytes(), UTF_8);
+        }
+        assertFalse(content.contains(TOKEN));
+        assertTrue(content.contains("Grade: 5"));
+    }
+
+    @Test
+    public void testRedact() {
+        assertEquals("/api/v4/user", SessionRecorder.redact("/api/v4/user?private_token=x"));
+        assertEquals("/api/v4/users?page=2", SessionRecorder.redact("/api/v4/users?private_token=x&page=2"));
+        assertEquals("/api/v4/users?page=2", SessionRecorder.redact("/api/v4/users?page=2"));
+    }
+
+    private String[] args(String url, String... extra) throws Exception {
+        var tokenFile = Files.writeString(tempDir.resolve("token.txt"), TOKEN);
+        var args = new String[] {
+                "--gitLabUrl", url,
+                "--tokenFile", tokenFile.toString(),
+                "--cacheDir", tempDir.resolve("cache").toString(),
+                "--group", "course",
+                "--patterns", "Grade: (\\d)"};
+        var all = new String[args.length + extra.length];
+        System.arraycopy(args, 0, all, 0, args.length);
+        System.arraycopy(extra, 0, all, args.length, extra.length);
+        return all;
+    }
+}
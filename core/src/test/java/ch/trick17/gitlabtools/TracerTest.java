@@ -0,0 +1,92 @@
+package ch.trick17.gitlabtools;
+
+import ch.trick17.gitlabtools.Tracer.Kind;
+import ch.trick17.gitlabtools.jfr.FlightRecording;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TracerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWrite() throws Exception {
+        var tracer = new Tracer(true);
+        try (var command = tracer.span("command", null)) {
+            try (var project = tracer.span("lisa", "lisa")) {
+                try (var fetch = tracer.span("fetch")) {
+                    Thread.sleep(1);
+                }
+            }
+            try (var other = tracer.span("other")) {
+                Thread.sleep(1);
+            }
+        }
+        var file = tempDir.resolve("trace.json");
+        tracer.write(file);
+
+        var events = new ObjectMapper().readTree(file.toFile()).get("traceEvents");
+        var projects = new HashMap<String, String>();
+        for (var event : events) {
+            if (event.get("ph").asText().equals("X")) {
+                assertTrue(event.get("dur").asDouble() >= 0);
+                projects.put(event.get("name").asText(),
+                        event.path("args").path("project").asText(null));
+            }
+        }
+        assertEquals(4, projects.size());
+        assertEquals("lisa", projects.get("fetch")); // inherited
+        assertEquals(null, projects.get("other")); // restored after "lisa" ended
+        assertEquals("thread_name", events.get(events.size() - 1).get("name").asText());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        var tracer = new Tracer(false);
+        assertFalse(tracer.isEnabled());
+        try (var span = tracer.span("fetch", "lisa")) {
+            // nothing
+        }
+        var file = tempDir.resolve("trace.json");
+        tracer.write(file);
+        var events = new ObjectMapper().readTree(file.toFile()).get("traceEvents");
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void testJfrEvents() throws Exception {
+        var file = tempDir.resolve("recording.jfr");
+        var tracer = new Tracer(false); // JFR events are emitted anyway
+        try (var recording = new FlightRecording(file)) {
+            try (var project = tracer.span(Kind.PROJECT, "lisa", "lisa")) {
+                try (var call = tracer.span(Kind.API_CALL, "get members")) {
+                    call.setItems(3);
+                    call.setOutcome("success");
+                }
+            }
+        }
+
+        var events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("ch.trick17.gitlabtools."))
+                .toList();
+        assertEquals(List.of("ch.trick17.gitlabtools.ApiCall", "ch.trick17.gitlabtools.Project"),
+                events.stream().map(e -> e.getEventType().getName()).sorted().toList());
+        var call = events.stream()
+                .filter(e -> e.getString("name").equals("get members"))
+                .findFirst().orElseThrow();
+        assertEquals("lisa", call.getString("project"));
+        assertEquals(3, call.getInt("items"));
+        assertEquals("success", call.getString("outcome"));
+    }
+}
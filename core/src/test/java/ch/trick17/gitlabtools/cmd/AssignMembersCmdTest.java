@@ -0,0 +1,36 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AssignMembersCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testErrors() throws Exception {
+        var group = gitlab.generateGroup("course", 50);
+        gitlab.withErrorRate(0.02).withRateLimitRate(0.02);
+
+        new AssignMembersCmd(withDefaults("course", "--concurrency", "4")).execute();
+
+        for (var project : group.projects) {
+            assertEquals(1, project.members.size());
+            assertEquals(project.name, project.members.get(0).username);
+        }
+        assertTrue(gitlab.injectedErrorCount() > 0);
+    }
+
+    @Test
+    public void testAssertionErrorWithConcurrency() throws Exception {
+        gitlab.generateGroup("course", 10);
+        // project names without prefix fail the same way, sequentially or not
+        for (var concurrency : List.of("1", "4")) {
+            assertThrows(AssertionError.class, () -> new AssignMembersCmd(withDefaults("course",
+                    "--withProjectNamePrefix", "--concurrency", concurrency)).execute());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CheckoutCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testErrors() throws Exception {
+        var group = gitlab.generateGroup("course", 50);
+        gitlab.withErrorRate(0.02).withRateLimitRate(0.02);
+        var destDir = tempDir.resolve("checkout");
+        var trace = tempDir.resolve("trace.json");
+
+        new CheckoutCmd(withDefaults("course",
+                "--destDir", destDir.toString(),
+                "--traceOut", trace.toString())).execute();
+
+        for (var project : group.projects) {
+            var readme = destDir.resolve(project.name).resolve("README.md");
+            assertEquals("# " + project.name + "\n", Files.readString(readme));
+        }
+        var content = Files.readString(trace);
+        assertTrue(content.contains("\"name\":\"clone\""));
+        assertTrue(content.contains("\"project\":\"student0050\""));
+    }
+}
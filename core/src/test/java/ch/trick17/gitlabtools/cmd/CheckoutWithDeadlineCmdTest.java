@@ -0,0 +1,34 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CheckoutWithDeadlineCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testDeadline() throws Exception {
+        var group = gitlab.generateGroup("course", 20);
+        var student = gitlab.user("student0001");
+        var project = group.projects.get(0);
+        gitlab.commit(project, "main", Map.of("Main.java", "class Main {}"),
+                "Submit", student, Instant.parse("2024-02-01T12:00:00Z"));
+        gitlab.commit(project, "main", Map.of("Main.java", "class Main { /* late */ }"),
+                "Late", student, Instant.parse("2024-02-03T12:00:00Z"));
+        var destDir = tempDir.resolve("checkout");
+
+        // deadline is interpreted in the local time zone, so leave some margin
+        new CheckoutWithDeadlineCmd(withDefaults("course",
+                "--destDir", destDir.toString(),
+                "--deadline", "2024-02-02T12:00:00")).execute();
+
+        var main = destDir.resolve(project.name).resolve("Main.java");
+        assertEquals("class Main {}", Files.readString(main));
+        assertTrue(Files.exists(destDir.resolve("student0020").resolve("README.md")));
+    }
+}
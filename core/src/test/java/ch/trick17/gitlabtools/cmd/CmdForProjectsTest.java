@@ -0,0 +1,35 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class CmdForProjectsTest extends FakeGitLabTest {
+
+    @Test
+    public void testMultipleGroups() throws Exception {
+        gitlab.addGroup("term");
+        var groupA = gitlab.generateGroup("term/section-a", 20);
+        var groupB = gitlab.generateGroup("term/section-b", 20);
+        gitlab.generateGroup("other", 5);
+        gitlab.withErrorRate(0.02);
+        var destDir = tempDir.resolve("checkout");
+
+        new CheckoutCmd(withDefaults("term/section-*",
+                "--destDir", destDir.toString(),
+                "--concurrency", "4")).execute();
+
+        for (var group : List.of(groupA, groupB)) {
+            var section = group.path.substring("term/".length());
+            for (var project : group.projects) {
+                var readme = destDir.resolve(section).resolve(project.name).resolve("README.md");
+                assertEquals("# " + project.name + "\n", Files.readString(readme));
+            }
+        }
+        assertFalse(Files.exists(destDir.resolve("other")));
+    }
+}
@@ -0,0 +1,25 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CreateBranchCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testLostResponses() throws Exception {
+        var group = gitlab.generateGroup("course", 20);
+        // branches and protections are created, but the responses get lost,
+        // so the retries fail because they already exist
+        gitlab.withLostResponseRate(0.3);
+
+        new CreateBranchCmd(withDefaults("course", "--branch", "review", "--ref", "main", "--concurrency", "4")).execute();
+
+        for (var project : group.projects) {
+            assertNotNull(project.repo.exactRef("refs/heads/review"));
+            assertTrue(project.protectedBranches.containsKey("review"));
+        }
+        assertTrue(gitlab.injectedErrorCount() > 0);
+    }
+}
@@ -0,0 +1,76 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.joining;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExtractFromMergeRequestsCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testManyDiscussions() throws Exception {
+        var group = gitlab.generateGroup("course", 1);
+        var project = group.projects.get(0);
+        var time = Instant.parse("2024-03-01T10:00:00Z");
+        var request = gitlab.addMergeRequest(project, "Review", time);
+        // more discussions than fit on one page
+        for (int i = 0; i < 250; i++) {
+            gitlab.addNote(request, "Points: " + i, time.plusSeconds(i));
+        }
+        var expected = IntStream.range(0, 250)
+                .mapToObj(String::valueOf)
+                .collect(joining(", "));
+
+        for (var incremental : List.of(false, true)) {
+            var output = tempDir.resolve("points-" + incremental + ".csv");
+            var args = new ArrayList<>(List.of(
+                    "--patterns", "Points: (\\d+)",
+                    "--output", output.toString()));
+            if (incremental) {
+                args.add("--incremental");
+            }
+            new ExtractFromMergeRequestsCmd(withDefaults("course", args.toArray(String[]::new))).execute();
+
+            var lines = Files.readAllLines(output);
+            assertEquals(2, lines.size());
+            assertEquals(expected, lines.get(1).replaceAll("^.*,\"(.*)\"$", "$1"));
+        }
+    }
+
+    @Test
+    public void testIncrementalFilters() throws Exception {
+        var project = gitlab.generateGroup("course", 1).projects.get(0);
+        var time = Instant.parse("2024-03-01T10:00:00Z");
+        gitlab.addMergeRequest(project, "Review", time, "Points: 5");
+        gitlab.addMergeRequest(project, "Other", time, "Points: 3");
+
+        // the filters are applied locally to the stored merge requests, so
+        // they must give the same results as GitLab's
+        for (int run = 0; run < 2; run++) {
+            var output = tempDir.resolve("points-" + run + ".csv");
+            new ExtractFromMergeRequestsCmd(withDefaults("course",
+                    "--patterns", "Points: (\\d+)",
+                    "--incremental",
+                    "--titleSearch", "review",
+                    "--output", output.toString())).execute();
+            var lines = Files.readAllLines(output);
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(1).contains("Review"));
+
+            output = tempDir.resolve("merged-" + run + ".csv");
+            new ExtractFromMergeRequestsCmd(withDefaults("course",
+                    "--patterns", "Points: (\\d+)",
+                    "--incremental",
+                    "--state", "merged",
+                    "--output", output.toString())).execute();
+            assertEquals(1, Files.readAllLines(output).size());
+        }
+    }
+}
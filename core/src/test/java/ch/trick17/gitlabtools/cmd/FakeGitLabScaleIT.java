@@ -0,0 +1,28 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs commands with groups of the size of large courses. These take too
+ * long for the unit test phase, so they run with the integration tests (but
+ * do not need a GitLab instance).
+ */
+public class FakeGitLabScaleIT extends FakeGitLabTest {
+
+    @Test
+    public void testAssignMembers() throws Exception {
+        var group = gitlab.generateGroup("course", 500);
+        gitlab.withErrorRate(0.02).withRateLimitRate(0.02);
+
+        new AssignMembersCmd(withDefaults("course")).execute();
+
+        for (var project : group.projects) {
+            assertEquals(1, project.members.size());
+            assertEquals(project.name, project.members.get(0).username);
+        }
+        assertTrue(gitlab.injectedErrorCount() > 0);
+    }
+}
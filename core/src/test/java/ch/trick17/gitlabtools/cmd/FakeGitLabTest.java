@@ -0,0 +1,48 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.FakeGitLab;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.stream;
+import static java.util.stream.Stream.concat;
+
+/**
+ * Base class for tests that run commands against a {@link FakeGitLab}, with
+ * larger groups than would be practical with a real GitLab instance, and
+ * with injected errors.
+ */
+public abstract class FakeGitLabTest {
+
+    @TempDir
+    Path tempDir;
+
+    FakeGitLab gitlab;
+
+    @BeforeEach
+    public void startGitLab() throws IOException {
+        gitlab = new FakeGitLab(42);
+    }
+
+    @AfterEach
+    public void stopGitLab() {
+        gitlab.close();
+    }
+
+    protected String[] withDefaults(String group, String... args) throws IOException {
+        var tokenFile = Files.writeString(tempDir.resolve("token.txt"), "token");
+        var defaults = Stream.of(
+                "--gitLabUrl", gitlab.url(),
+                "--tokenFile", tokenFile.toString(),
+                "--cacheDir", tempDir.resolve("cache").toString(),
+                "--retryDelay", "10",
+                "--group", group);
+        return concat(defaults, stream(args)).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,71 @@
+package ch.trick17.gitlabtools.cmd;
+
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Stream.concat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MergeResultsCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testShards() throws Exception {
+        var group = gitlab.generateGroup("course", 40);
+        var destDir = tempDir.resolve("checkout");
+
+        var resultFiles = new ArrayList<String>();
+        var processed = new HashSet<String>();
+        for (int i = 1; i <= 3; i++) {
+            var resultFile = tempDir.resolve("results-" + i + ".json").toString();
+            new CheckoutCmd(withDefaults("course",
+                    "--destDir", destDir.toString(),
+                    "--shard", i + "/3",
+                    "--resultOut", resultFile)).execute();
+            for (var step : ResultFile.read(Path.of(resultFile)).progress().steps()) {
+                assertTrue(processed.add(step.project()), step.project() + " processed twice");
+            }
+            resultFiles.add(resultFile);
+        }
+        assertEquals(group.projects.size(), processed.size());
+        for (var project : group.projects) {
+            assertTrue(Files.exists(destDir.resolve(project.name).resolve("README.md")));
+        }
+
+        var merge = new MergeResultsCmd(withDefaults("course",
+                concat(Stream.of("--resultFiles"), resultFiles.stream()).toArray(String[]::new)));
+        merge.execute();
+        assertEquals("Done. 40 successful (40 newly cloned).", merge.resultSummary());
+    }
+
+    @Test
+    public void testDifferentSplits() throws Exception {
+        gitlab.generateGroup("course", 10);
+        var files = new ArrayList<String>();
+        for (var shard : List.of("1/2", "2/3", "")) {
+            var resultFile = tempDir.resolve("results-" + files.size() + ".json").toString();
+            var args = new ArrayList<>(List.of(
+                    "--destDir", tempDir.resolve("checkout").toString(),
+                    "--resultOut", resultFile));
+            if (!shard.isEmpty()) {
+                args.addAll(List.of("--shard", shard));
+            }
+            new CheckoutCmd(withDefaults("course", args.toArray(String[]::new))).execute();
+            files.add(resultFile);
+        }
+
+        // overlapping shards of different splits, and a run without shards
+        for (var pair : List.of(List.of(files.get(0), files.get(1)), List.of(files.get(0), files.get(2)))) {
+            assertThrows(ArgumentValidationException.class, () -> new MergeResultsCmd(withDefaults("course",
+                    concat(Stream.of("--resultFiles"), pair.stream()).toArray(String[]::new))));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ch.trick17.gitlabtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipelineCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testPipeline() throws Exception {
+        var group = gitlab.generateGroup("course", 30);
+        var file = Files.writeString(tempDir.resolve("pipeline.txt"), """
+                # semester start
+                assign-members &
+                create-branch --branch dev --branchAccess "maintainer"
+                protect-branch --branch dev
+                """);
+
+        var pipeline = new PipelineCmd(withDefaults("course",
+                "--pipelineFile", file.toString()), Map.of(
+                "assign-members", AssignMembersCmd::new,
+                "create-branch", CreateBranchCmd::new,
+                "protect-branch", ProtectBranchCmd::new));
+        pipeline.execute();
+
+        for (var project : group.projects) {
+            assertEquals(project.name, project.members.get(0).username);
+            assertTrue(project.protectedBranches.containsKey("dev"));
+        }
+        // project list is fetched only once (or twice, if the background
+        // step and the next one both start fetching it at the same time)
+        var projectLists = pipeline.context().projects.stats();
+        assertTrue(projectLists.misses() <= 2);
+        assertEquals(3, projectLists.hits() + projectLists.misses());
+    }
+
+    @Test
+    public void testErrorInBackgroundStep() throws Exception {
+        var group = gitlab.generateGroup("course", 5);
+        // project names without prefix cause an AssertionError
+        var file = Files.writeString(tempDir.resolve("pipeline.txt"), """
+                assign-members --withProjectNamePrefix &
+                wait
+                create-branch --branch dev
+                """);
+
+        var pipeline = new PipelineCmd(withDefaults("course",
+                "--pipelineFile", file.toString()), Map.of(
+                "assign-members", AssignMembersCmd::new,
+                "create-branch", CreateBranchCmd::new));
+        var stdout = System.out;
+        var output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, UTF_8));
+        try {
+            var e = assertThrows(AssertionError.class, pipeline::execute);
+            assertTrue(e.getMessage().startsWith("unexpected project name"), e.getMessage());
+        } finally {
+            System.setOut(stdout);
+        }
+        assertTrue(output.toString(UTF_8).contains("Pipeline summary:"));
+        for (var project : group.projects) {
+            assertFalse(project.protectedBranches.containsKey("dev"));
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        assertEquals(List.of("publish-file", "--file", "a b.txt", "--commitMessage", "It's here"),
+                PipelineCmd.split("publish-file --file 'a b.txt'  --commitMessage \"It's here\""));
+    }
+}
@@ -0,0 +1,99 @@
+package ch.trick17.gitlabtools.cmd;
+
+import ch.trick17.gitlabtools.ServeClient;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServeCmdTest extends FakeGitLabTest {
+
+    @Test
+    public void testServe() throws Exception {
+        var group = gitlab.generateGroup("course", 20);
+        var socket = tempDir.resolve("serve.sock");
+        var thread = startServer(socket);
+
+        for (int i = 0; i < 2; i++) {
+            var output = new ByteArrayOutputStream();
+            var exitCode = ServeClient.run(socket, new String[] {"assign-members"}, false, output);
+            assertEquals(0, exitCode);
+            var expected = i == 0 ? "Done. 20 successful." : "Done. 20 existing.";
+            assertTrue(output.toString(UTF_8).contains(expected), output.toString(UTF_8));
+        }
+        for (var project : group.projects) {
+            assertEquals(project.name, project.members.get(0).username);
+        }
+
+        var output = new ByteArrayOutputStream();
+        assertEquals(2, ServeClient.run(socket, new String[] {"unknown"}, false, output));
+        assertEquals(0, ServeClient.run(socket, new String[] {"stop"}, false, output));
+        thread.join();
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    public void testServerSurvivesErrors() throws Exception {
+        gitlab.generateGroup("course", 5);
+        var socket = tempDir.resolve("serve.sock");
+        var thread = startServer(socket);
+
+        // project names without prefix cause an AssertionError
+        var output = new ByteArrayOutputStream();
+        var exitCode = ServeClient.run(socket,
+                new String[] {"assign-members", "--withProjectNamePrefix"}, false, output);
+        assertEquals(1, exitCode);
+        assertTrue(output.toString(UTF_8).contains("AssertionError"), output.toString(UTF_8));
+
+        // malformed requests
+        var cwd = Path.of("").toAbsolutePath().toString();
+        for (var request : List.of(
+                ServeClient.PROTOCOL + "\n",
+                ServeClient.PROTOCOL + "\n" + cwd + "\nfalse\nmany\n",
+                ServeClient.PROTOCOL + "\n" + cwd + "\nfalse\n0\n",
+                ServeClient.PROTOCOL + "\n" + cwd + "\nfalse\n2\nassign-members\n")) {
+            assertTrue(send(socket, request).endsWith(ServeClient.END + "2\n"));
+        }
+
+        assertEquals(0, ServeClient.run(socket, new String[] {"assign-members"}, false, output));
+        assertEquals(0, ServeClient.run(socket, new String[] {"stop"}, false, output));
+        thread.join();
+    }
+
+    private Thread startServer(Path socket) throws Exception {
+        var server = new ServeCmd(withDefaults("course", "--socket", socket.toString()),
+                Map.of("assign-members", AssignMembersCmd::new));
+        var thread = new Thread(() -> {
+            try {
+                server.execute();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        while (!Files.exists(socket)) {
+            Thread.sleep(10);
+        }
+        return thread;
+    }
+
+    private static String send(Path socket, String request) throws IOException {
+        try (var channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            channel.write(UTF_8.encode(request));
+            channel.shutdownOutput();
+            return new String(Channels.newInputStream(channel).readAllBytes(), UTF_8);
+        }
+    }
+}
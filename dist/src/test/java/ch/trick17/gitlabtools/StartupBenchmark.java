@@ -0,0 +1,101 @@
+package ch.trick17.gitlabtools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.lang.ProcessBuilder.Redirect.DISCARD;
+
+/**
+ * Creates a dynamic AppCDS archive for the default distribution and measures
+ * the startup time of the CLI with and without it, as well as for the other
+ * distributions. Also reports the size of the distributions and of the
+ * module jars. Run by the build in the <code>cds</code> profile
+ * (<code>mvn package -Pcds</code>), after the jars have been assembled.
+ * <p>
+ * Both the training run and the measured runs execute a command against an
+ * unreachable GitLab instance, so they go through argument parsing and the
+ * setup of the API client (which make up most of the startup time of short
+ * commands), but do not depend on the network.
+ * <p>
+ * Arguments: the archive to create, the number of measured runs, the
+ * distributions (comma-separated, the default one first), and the module
+ * jars (comma-separated).
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        var archive = Path.of(args[0]);
+        var runs = Integer.parseInt(args[1]);
+        var distributions = Stream.of(args[2].split(",")).map(Path::of).toList();
+        var modules = Stream.of(args[3].split(",")).map(Path::of).toList();
+
+        System.out.println("Module jars:");
+        for (var module : modules) {
+            System.out.printf("  %-62s %8d KB\n", module.getFileName(), Files.size(module) / 1024);
+        }
+
+        var tokenFile = Files.createTempFile("token", ".txt");
+        try {
+            Files.writeString(tokenFile, "token");
+            var command = List.of("checkout",
+                    "--gitLabUrl", "http://localhost:1",
+                    "--tokenFile", tokenFile.toString(),
+                    "--group", "startup-benchmark",
+                    "--destDir", tokenFile.getParent().resolve("startup-benchmark").toString(),
+                    "--retries", "0",
+                    "--progress", "compact");
+
+            System.out.printf("Distributions (startup time: average of %d runs):\n", runs);
+            for (var jar : distributions) {
+                run(jar, null, command); // warm up OS file cache
+                System.out.printf("  %-62s %8d KB %6d ms\n", jar.getFileName(),
+                        Files.size(jar) / 1024, measure(jar, null, command, runs));
+            }
+
+            var jar = distributions.get(0);
+            Files.deleteIfExists(archive);
+            run(jar, "-XX:ArchiveClassesAtExit=" + archive, command);
+            if (!Files.exists(archive)) {
+                throw new AssertionError("CDS archive was not created");
+            }
+            var with = measure(jar, "-XX:SharedArchiveFile=" + archive, command, runs);
+            System.out.printf("  %-62s %8s    %6d ms\n", "with CDS archive " + archive.getFileName(),
+                    "", with);
+        } finally {
+            Files.delete(tokenFile);
+        }
+    }
+
+    private static long measure(Path jar, String vmOption, List<String> command, int runs)
+            throws IOException, InterruptedException {
+        var total = 0L;
+        for (int i = 0; i < runs; i++) {
+            var start = System.nanoTime();
+            run(jar, vmOption, command);
+            total += System.nanoTime() - start;
+        }
+        return total / runs / 1_000_000;
+    }
+
+    private static void run(Path jar, String vmOption, List<String> command)
+            throws IOException, InterruptedException {
+        var java = Path.of(System.getProperty("java.home"), "bin", "java");
+        var processArgs = new ArrayList<String>();
+        processArgs.add(java.toString());
+        if (vmOption != null) {
+            processArgs.add(vmOption);
+        }
+        processArgs.addAll(List.of("-jar", jar.toString()));
+        processArgs.addAll(command);
+        var process = new ProcessBuilder(processArgs)
+                .redirectOutput(DISCARD)
+                .redirectError(DISCARD)
+                .start();
+        process.getOutputStream().close();
+        process.waitFor(); // fails (no GitLab), which is expected
+    }
+}